@@ -2,11 +2,13 @@ package com.example.customerapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 /**
  * The main entry point of the CustomerAPI Spring Boot application.
  * This class is responsible for bootstrapping the application and launching the embedded server.
  */
 @SpringBootApplication
+@EnableScheduling
 public class CustomerApiApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,76 @@
+package com.example.customerapi.concurrent;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free bounded multi-producer queue.
+ * Producers reserve a slot by compare-and-set on a counter before adding to a {@link ConcurrentLinkedQueue},
+ * so a full queue rejects new elements instead of blocking the producer or growing without limit.
+ *
+ * @param <T> The element type.
+ */
+public class BoundedQueue<T> {
+    private final Queue<T> elements = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    /**
+     * @param capacity The maximum number of elements the queue holds.
+     */
+    public BoundedQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds the element unless the queue is full.
+     *
+     * @param element The element to add.
+     * @return true if the element was added, false if the queue is full.
+     */
+    public boolean offer(T element) {
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        elements.add(element);
+        return true;
+    }
+
+    /**
+     * Moves up to the given number of elements, oldest first, into the target collection.
+     *
+     * @param target      The collection to add the elements to.
+     * @param maxElements The maximum number of elements to move.
+     * @return The number of elements moved.
+     */
+    public int drainTo(Collection<? super T> target, int maxElements) {
+        int drained = 0;
+        T element;
+        while (drained < maxElements && (element = elements.poll()) != null) {
+            size.decrementAndGet();
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * @return The number of elements in the queue, including ones being added concurrently.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.customerapi.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single execution.
+ * The first caller for a key runs the loader, callers arriving while it is in flight wait for its result
+ * instead of running their own. Pending calls are kept in a lock-free map of futures and removed
+ * as soon as they complete, so nothing is cached beyond the duration of one call.
+ * A waiting caller that does not get a result within its maximum wait runs the loader itself.
+ * Only results are shared: when the in-flight call fails, for instance because the deadline of the request
+ * running it passed, one waiting caller takes over and runs the loader while the others wait for it in turn,
+ * so that a failing database still sees one call at a time rather than one per waiting caller.
+ * Invalidating a key makes later callers start a new call instead of joining the one in flight,
+ * so that a read issued after a write never joins a call that may have started before the write.
+ *
+ * @param <K> The key type.
+ * @param <V> The result type.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Supplier<Duration> maxWait;
+    private final Runnable onCoalesced;
+    private final Runnable onTimeout;
+
+    /**
+     * @param maxWait     Supplies how long a caller waits at most for in-flight calls before running the loader itself;
+     *                    evaluated on the caller's thread when it first joins a call.
+     * @param onCoalesced Invoked each time a caller joins an in-flight call.
+     * @param onTimeout   Invoked each time a waiting caller gives up on an in-flight call.
+     */
+    public SingleFlight(Supplier<Duration> maxWait, Runnable onCoalesced, Runnable onTimeout) {
+        this.maxWait = maxWait;
+        this.onCoalesced = onCoalesced;
+        this.onTimeout = onTimeout;
+    }
+
+    /**
+     * Returns the result of the in-flight call for the key, or runs the loader if there is none.
+     *
+     * @param key    The key identifying identical calls.
+     * @param loader Produces the result; runs at most once for all callers joining the same call.
+     * @return The loader's result.
+     */
+    public V execute(K key, Supplier<V> loader) {
+        long waitUntil = 0;
+        boolean waiting = false;
+        while (true) {
+            var pending = new CompletableFuture<V>();
+            var existing = inFlight.putIfAbsent(key, pending);
+            if (existing == null) {
+                return load(key, pending, loader);
+            }
+            if (!waiting) {
+                waiting = true;
+                waitUntil = System.nanoTime() + Math.max(0, maxWait.get().toNanos());
+            }
+            onCoalesced.run();
+            try {
+                return existing.get(Math.max(0, waitUntil - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException exception) {
+                onTimeout.run();
+                return loader.get();
+            } catch (ExecutionException exception) {
+                // The in-flight call failed and is no longer registered: take over, or join whoever did
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for an in-flight call", exception);
+            }
+        }
+    }
+
+    /**
+     * Makes later callers for the key start a new call rather than join the one in flight.
+     * Callers already waiting for the in-flight call still get its result.
+     *
+     * @param key The key whose in-flight call should not be joined anymore.
+     */
+    public void invalidate(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * Makes later callers for every key matching the predicate start a new call rather than join the one in flight.
+     *
+     * @param keys Selects the keys whose in-flight calls should not be joined anymore.
+     */
+    public void invalidateIf(Predicate<? super K> keys) {
+        inFlight.keySet().removeIf(keys);
+    }
+
+    /**
+     * @return The number of keys with a call currently in flight.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Runs the loader as the leader of a call.
+     * A failed call is unregistered before its waiting callers are woken, so that they find no failed call to rejoin.
+     */
+    private V load(K key, CompletableFuture<V> pending, Supplier<V> loader) {
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error exception) {
+            inFlight.remove(key, pending);
+            pending.completeExceptionally(exception);
+            throw exception;
+        }
+        pending.complete(value);
+        inFlight.remove(key, pending);
+        return value;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.customerapi.config;
+
+import com.example.customerapi.deadline.DeadlineAwareJpaTransactionManager;
+import com.example.customerapi.deadline.DeadlineInterceptor;
+import com.example.customerapi.deadline.DeadlineProperties;
+import com.example.customerapi.deadline.StatementCancellingInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration of request deadlines.
+ * Starts a deadline for every request and replaces the Spring Boot JPA transaction manager
+ * with one that turns the time remaining into transaction and statement timeouts.
+ * Asynchronously handled requests run on a dedicated, bounded thread pool
+ * and have their statements cancelled when the client disconnects.
+ */
+@Configuration
+@EnableConfigurationProperties(DeadlineProperties.class)
+public class DeadlineConfig implements WebMvcConfigurer {
+    private final DeadlineProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public DeadlineConfig(DeadlineProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new DeadlineInterceptor(properties));
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(asyncRequestExecutor());
+        configurer.registerCallableInterceptors(new StatementCancellingInterceptor(meterRegistry));
+    }
+
+    /**
+     * Provides the thread pool that runs the Callables of async requests, sized by customer.deadline.async.
+     * Its queue is bounded, so that an overloaded endpoint rejects requests instead of queueing them past their deadline.
+     *
+     * @return The async request executor.
+     */
+    @Bean
+    public AsyncTaskExecutor asyncRequestExecutor() {
+        var async = properties.getAsync();
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(async.getPoolSize());
+        executor.setMaxPoolSize(async.getPoolSize());
+        executor.setQueueCapacity(async.getQueueCapacity());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("async-request-");
+        return executor;
+    }
+
+    /**
+     * Provides the transaction manager in place of the one Spring Boot configures for JPA,
+     * applying the same spring.transaction customizations.
+     * The EntityManagerFactory and its DataSource are looked up when the transaction manager is initialized.
+     *
+     * @param customizers The Spring Boot transaction manager customizers.
+     * @return The deadline-aware JPA transaction manager.
+     */
+    @Bean
+    @Profile("!in-memory")
+    public PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        var transactionManager = new DeadlineAwareJpaTransactionManager();
+        customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+        return transactionManager;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.customerapi.config;
+
+import com.example.customerapi.repository.memory.InMemoryCustomerRepository;
+import com.example.customerapi.repository.memory.InMemoryTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration of customer storage without a database, active with the in-memory profile.
+ * The profile's properties exclude the DataSource, JPA and Flyway auto-configuration;
+ * this class provides the repository and transaction manager in their place.
+ * Customers are kept for the lifetime of the process unless customer.in-memory.log-path names a log file
+ * to restore them from and append writes to.
+ */
+@Configuration
+@Profile("in-memory")
+public class InMemoryStorageConfig {
+
+    @Bean
+    public InMemoryCustomerRepository customerRepository(
+            @Value("${customer.in-memory.log-path}") String logPath,
+            @Value("${customer.in-memory.log-sync}") boolean logSync) {
+        return logPath.isBlank()
+                ? new InMemoryCustomerRepository()
+                : new InMemoryCustomerRepository(Path.of(logPath), logSync);
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager() {
+        return new InMemoryTransactionManager();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.customerapi.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+/**
+ * Configuration of Jackson-based message converters.
+ * Registers a CBOR converter so clients sending "Accept: application/cbor" receive a compact binary encoding
+ * of the same payloads that are otherwise serialized as JSON.
+ */
+@Configuration
+public class JacksonConfig {
+    /**
+     * Creates a CBOR message converter backed by an ObjectMapper configured like the application's JSON mapper.
+     *
+     * @param builder The Spring Boot configured ObjectMapper builder.
+     * @return The CBOR message converter.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.customerapi.config;
+
+import com.example.customerapi.profiling.ProfilingInterceptor;
+import com.example.customerapi.profiling.ProfilingJackson2HttpMessageConverter;
+import com.example.customerapi.profiling.ProfilingValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+/**
+ * Configuration of request stage profiling with Java Flight Recorder.
+ * Tags stage events with the handled endpoint and records request validation and JSON serialization as stages.
+ */
+@Configuration
+public class ProfilingConfig implements WebMvcConfigurer {
+    private final jakarta.validation.Validator validator;
+
+    public ProfilingConfig(jakarta.validation.Validator validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ProfilingInterceptor());
+    }
+
+    @Override
+    public Validator getValidator() {
+        return new ProfilingValidator(new SpringValidatorAdapter(validator));
+    }
+
+    /**
+     * Replaces the default JSON message converter with one that records serialization time.
+     *
+     * @param objectMapper The Spring Boot configured ObjectMapper.
+     * @return The JSON message converter.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new ProfilingJackson2HttpMessageConverter(objectMapper);
+    }
+}
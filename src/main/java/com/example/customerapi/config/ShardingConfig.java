@@ -0,0 +1,110 @@
+package com.example.customerapi.config;
+
+import com.example.customerapi.service.CustomerService;
+import com.example.customerapi.service.id.CustomerIdGenerator;
+import com.example.customerapi.service.impl.CustomerServiceImpl;
+import com.example.customerapi.sharding.CustomerDirectory;
+import com.example.customerapi.sharding.ShardDataSources;
+import com.example.customerapi.sharding.ShardRouter;
+import com.example.customerapi.sharding.ShardRoutingDataSource;
+import com.example.customerapi.sharding.ShardedCustomerService;
+import com.example.customerapi.sharding.ShardingProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration of hash-sharded customer storage.
+ * Always provides a {@link ShardRouter}, with a single shard when sharding is disabled,
+ * so that maintenance jobs can iterate over shards without knowing whether sharding is on.
+ * When customer.sharding.enabled is true, replaces the application DataSource with a router over the shard databases,
+ * migrates every shard with Flyway and puts {@link ShardedCustomerService} in front of the single-database service.
+ * Sharding has to start from empty shards: existing customers are not moved to the shard their ID maps to,
+ * and startup fails when a shard holds customers that belong to another one.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    public ShardRouter shardRouter(ShardingProperties properties) {
+        return new ShardRouter(properties.isEnabled() ? properties.getShards().size() : 1);
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "customer.sharding.enabled", havingValue = "true")
+    static class ShardedStorageConfig {
+        private static final int BACKFILL_PAGE_SIZE = 1000;
+
+        @Bean
+        public ShardDataSources shardDataSources(ShardingProperties properties) {
+            return new ShardDataSources(properties);
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(ShardDataSources shards, ShardRouter router) {
+            Map<Object, Object> targets = new HashMap<>();
+            for (int shard = 0; shard < shards.all().size(); shard++) {
+                targets.put(shard, shards.get(shard));
+            }
+            var dataSource = new ShardRoutingDataSource(router);
+            dataSource.setTargetDataSources(targets);
+            dataSource.setDefaultTargetDataSource(shards.get(0));
+            return dataSource;
+        }
+
+        /**
+         * Applies the Flyway migrations to every shard instead of only the default one.
+         */
+        @Bean
+        public FlywayMigrationStrategy shardedMigrationStrategy(ShardDataSources shards) {
+            return flyway -> shards.all().forEach(dataSource -> Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(dataSource)
+                    .load()
+                    .migrate());
+        }
+
+        @Bean
+        public CustomerDirectory customerDirectory(ShardDataSources shards) {
+            return new CustomerDirectory(shards.get(0));
+        }
+
+        /**
+         * Claims the customers missing from the directory on every shard once all beans, including Flyway,
+         * are initialized and before the web server starts, so no request sees a partial directory.
+         * Fails startup if a shard holds customers whose IDs map to another shard.
+         */
+        @Bean
+        public SmartInitializingSingleton customerDirectoryBackfill(CustomerDirectory directory,
+                                                                    ShardDataSources shards, ShardRouter router) {
+            return () -> {
+                for (int shard = 0; shard < shards.all().size(); shard++) {
+                    long claimed = directory.backfill(shard, shards.get(shard), router, BACKFILL_PAGE_SIZE);
+                    if (claimed > 0) {
+                        log.info("Claimed {} customers of shard {} in the customer directory", claimed, shard);
+                    }
+                }
+            };
+        }
+
+        @Bean
+        @Primary
+        public CustomerService shardedCustomerService(CustomerServiceImpl delegate, ShardRouter router,
+                                                      CustomerDirectory directory, CustomerIdGenerator idGenerator) {
+            return new ShardedCustomerService(delegate, router, directory, idGenerator);
+        }
+    }
+}
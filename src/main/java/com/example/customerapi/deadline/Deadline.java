@@ -0,0 +1,76 @@
+package com.example.customerapi.deadline;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of the request handled on the current thread.
+ * Transactions started before the deadline get a timeout of the time remaining,
+ * which bounds their statements with JDBC query timeouts; transactions are not started once it has passed.
+ * Threads without a deadline, such as background jobs, are not limited.
+ */
+public final class Deadline {
+    private static final ThreadLocal<Long> EXPIRES = new ThreadLocal<>();
+
+    private Deadline() {
+    }
+
+    /**
+     * Sets the deadline of the current thread.
+     *
+     * @param timeout The time from now until the deadline.
+     */
+    public static void start(Duration timeout) {
+        EXPIRES.set(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Removes the deadline of the current thread.
+     */
+    public static void clear() {
+        EXPIRES.remove();
+    }
+
+    /**
+     * @return The time remaining until the deadline of the current thread, zero or negative once it has passed,
+     * or empty if the thread has no deadline.
+     */
+    public static Optional<Duration> remaining() {
+        var expires = EXPIRES.get();
+        return expires == null ? Optional.empty() : Optional.of(Duration.ofNanos(expires - System.nanoTime()));
+    }
+
+    /**
+     * Wraps the action so that it runs under the deadline of the current thread, whichever thread runs it.
+     * The request's {@link StatementCanceller}, if one is bound, is carried along with the deadline.
+     *
+     * @param action The action to hand over to another thread.
+     * @return The wrapped action, or the action itself if the current thread has no deadline.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> action) {
+        var expires = EXPIRES.get();
+        var canceller = StatementCanceller.current();
+        if (expires == null) {
+            return action;
+        }
+        return () -> {
+            var previous = EXPIRES.get();
+            var previousCanceller = StatementCanceller.current();
+            EXPIRES.set(expires);
+            if (canceller != null) {
+                StatementCanceller.bind(canceller);
+            }
+            try {
+                return action.get();
+            } finally {
+                if (previous == null) {
+                    EXPIRES.remove();
+                } else {
+                    EXPIRES.set(previous);
+                }
+                StatementCanceller.bind(previousCanceller);
+            }
+        };
+    }
+}
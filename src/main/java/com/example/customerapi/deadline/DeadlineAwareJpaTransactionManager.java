@@ -0,0 +1,84 @@
+package com.example.customerapi.deadline;
+
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+
+/**
+ * JPA transaction manager that bounds new transactions by the deadline of the current request.
+ * The transaction timeout becomes the time remaining until the deadline, unless the transaction declares a shorter one.
+ * Spring applies the remaining transaction time to every JPA query and JdbcTemplate statement as a JDBC query timeout,
+ * and the PostgreSQL driver cancels a statement that outlives it, which returns its connection to the pool;
+ * statements issued after the deadline fail without reaching the database.
+ * JDBC query timeouts have a granularity of seconds, so the remaining time is rounded up to whole seconds.
+ * Transactions that join an existing one keep the timeout of the existing transaction.
+ * When the request has a {@link StatementCanceller}, the connection of each new transaction is registered with it
+ * for as long as the transaction runs, so that the request's statements can be cancelled from another thread.
+ */
+public class DeadlineAwareJpaTransactionManager extends JpaTransactionManager {
+
+    /**
+     * Refuses to begin a transaction, and so to take a connection from the pool, once the deadline has passed
+     * or the request has been cancelled.
+     *
+     * @throws TransactionTimedOutException if the deadline of the current request has passed or it was cancelled.
+     */
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        var remaining = Deadline.remaining();
+        if (remaining.isPresent() && (remaining.get().isNegative() || remaining.get().isZero())) {
+            throw new TransactionTimedOutException("Request deadline exceeded before the transaction began");
+        }
+        var canceller = StatementCanceller.current();
+        if (canceller != null && canceller.isCancelled()) {
+            throw new TransactionTimedOutException("Request cancelled before the transaction began");
+        }
+        super.doBegin(transaction, definition);
+        if (canceller != null) {
+            var connection = transactionConnection();
+            if (connection != null) {
+                canceller.register(transaction, connection);
+            }
+        }
+    }
+
+    /**
+     * Unregisters the connection from the request's canceller before the connection is returned to the pool.
+     */
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        var canceller = StatementCanceller.current();
+        if (canceller != null) {
+            canceller.unregister(transaction);
+        }
+        super.doCleanupAfterCompletion(transaction);
+    }
+
+    @Override
+    protected int determineTimeout(TransactionDefinition definition) {
+        int timeout = super.determineTimeout(definition);
+        var remaining = Deadline.remaining();
+        if (remaining.isEmpty()) {
+            return timeout;
+        }
+        long remainingSeconds = Math.max(1, (remaining.get().toMillis() + 999) / 1000);
+        return (int) (timeout == TransactionDefinition.TIMEOUT_DEFAULT
+                ? Math.min(Integer.MAX_VALUE, remainingSeconds)
+                : Math.min(timeout, remainingSeconds));
+    }
+
+    /**
+     * @return The JDBC connection of the current transaction, or null if the JPA dialect does not expose it.
+     */
+    private Connection transactionConnection() {
+        var dataSource = getDataSource();
+        return dataSource != null
+                && TransactionSynchronizationManager.getResource(dataSource) instanceof ConnectionHolder holder
+                ? holder.getConnection()
+                : null;
+    }
+}
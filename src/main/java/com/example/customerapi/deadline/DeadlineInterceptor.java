@@ -0,0 +1,81 @@
+package com.example.customerapi.deadline;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Starts the deadline of each request and clears it once the request completes.
+ * Clients may shorten or extend the endpoint's timeout with the X-Request-Timeout header, in milliseconds,
+ * typically set to the time they are still willing to wait.
+ * Asynchronously handled requests carry the deadline to the thread running their Callable
+ * and clear it from the request thread once it is released.
+ */
+public class DeadlineInterceptor implements AsyncHandlerInterceptor {
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final Duration defaultTimeout;
+    private final Duration maxTimeout;
+    private final Map<String, Duration> endpointTimeouts = new HashMap<>();
+
+    public DeadlineInterceptor(DeadlineProperties properties) {
+        this.defaultTimeout = properties.getDefaultTimeout();
+        this.maxTimeout = properties.getMaxTimeout();
+        for (var endpoint : properties.getEndpoints()) {
+            endpointTimeouts.put(endpoint(endpoint.getMethod(), endpoint.getPattern()), endpoint.getTimeout());
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the X-Request-Timeout header is not a non-negative number.
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        var timeout = requestedTimeout(request.getHeader(TIMEOUT_HEADER));
+        if (timeout == null) {
+            var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            timeout = endpointTimeouts.getOrDefault(
+                    endpoint(request.getMethod(), pattern != null ? pattern.toString() : request.getRequestURI()),
+                    defaultTimeout);
+        }
+        Deadline.start(timeout.compareTo(maxTimeout) > 0 ? maxTimeout : timeout);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception exception) {
+        Deadline.clear();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        Deadline.clear();
+    }
+
+    private static Duration requestedTimeout(String header) {
+        if (header == null) {
+            return null;
+        }
+        try {
+            var millis = Long.parseLong(header.trim());
+            if (millis >= 0) {
+                return Duration.ofMillis(millis);
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below together with negative values
+        }
+        throw new IllegalArgumentException(
+                "%s should be a non-negative number of milliseconds".formatted(TIMEOUT_HEADER));
+    }
+
+    private static String endpoint(String method, String pattern) {
+        return method.toUpperCase() + " " + pattern;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.customerapi.deadline;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of request deadlines.
+ * A request's deadline comes from its X-Request-Timeout header, else from the timeout of its endpoint,
+ * else from the default timeout, and is never further away than the maximum timeout.
+ */
+@Data
+@ConfigurationProperties(prefix = "customer.deadline")
+public class DeadlineProperties {
+    private Duration defaultTimeout = Duration.ofSeconds(5);
+    private Duration maxTimeout = Duration.ofSeconds(30);
+    private List<Endpoint> endpoints = new ArrayList<>();
+    private Async async = new Async();
+
+    /**
+     * Timeout of one endpoint, identified by its HTTP method and URL pattern, e.g. GET and "/api/customers/{id}".
+     */
+    @Data
+    public static class Endpoint {
+        private String method;
+        private String pattern;
+        private Duration timeout;
+    }
+
+    /**
+     * Thread pool running the Callables of asynchronously handled requests, such as the list of active customers.
+     * At most pool-size of them run at once, which caps the concurrency of those endpoints
+     * the way the servlet container's thread pool caps blocking ones; up to queue-capacity more wait for a thread,
+     * and requests beyond that are rejected with 503 Service Unavailable rather than queued until their deadline.
+     */
+    @Data
+    public static class Async {
+        private int poolSize = 200;
+        private int queueCapacity = 100;
+    }
+}
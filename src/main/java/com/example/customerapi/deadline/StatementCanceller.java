@@ -0,0 +1,89 @@
+package com.example.customerapi.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Cancels the database statements of one request from another thread, e.g. once its client has disconnected.
+ * The deadline-aware transaction manager registers the connection of every transaction the request begins
+ * while the canceller is bound, and cancelling sends PostgreSQL a cancel request for the statement running on each;
+ * once cancelled, the request begins no further transactions.
+ * The canceller is bound to the threads running the request, and carried to other threads by {@link Deadline#propagate}.
+ */
+@Slf4j
+public class StatementCanceller {
+    private static final ThreadLocal<StatementCanceller> CURRENT = new ThreadLocal<>();
+    private static final String QUERY_CANCELED = "57014";
+
+    private final Map<Object, Connection> connections = new IdentityHashMap<>();
+    private boolean cancelled;
+
+    /**
+     * @return The canceller bound to the current thread, or null if there is none.
+     */
+    static StatementCanceller current() {
+        return CURRENT.get();
+    }
+
+    static void bind(StatementCanceller canceller) {
+        if (canceller == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(canceller);
+        }
+    }
+
+    /**
+     * @return Whether the request has been cancelled.
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancels the statements running on the registered connections and prevents new transactions.
+     * Holds the canceller while sending the cancel requests, so that no connection is unregistered,
+     * and returned to the pool, before its cancel request has been sent.
+     *
+     * @return The number of connections a cancel request was sent for.
+     */
+    public synchronized int cancel() {
+        cancelled = true;
+        int sent = 0;
+        for (var connection : connections.values()) {
+            try {
+                connection.unwrap(PGConnection.class).cancelQuery();
+                sent++;
+            } catch (SQLException exception) {
+                log.warn("Failed to cancel the statement of an abandoned request", exception);
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * @param exception An exception thrown by a database call.
+     * @return Whether the database cancelled the statement, because of a JDBC query timeout or a cancel request.
+     */
+    public static boolean isCancellation(Throwable exception) {
+        for (var cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && QUERY_CANCELED.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void register(Object transaction, Connection connection) {
+        connections.put(transaction, connection);
+    }
+
+    synchronized void unregister(Object transaction) {
+        connections.remove(transaction);
+    }
+}
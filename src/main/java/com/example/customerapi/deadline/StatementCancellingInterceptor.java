@@ -0,0 +1,86 @@
+package com.example.customerapi.deadline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Cancels the database statements of an asynchronously handled request once the servlet container reports an error
+ * for it, typically because the client disconnected, or once the async request times out,
+ * so that an abandoned request stops holding a pooled connection and database time.
+ * A blocking request cannot learn of a disconnect before it writes its response;
+ * endpoints that may run long statements return a Callable so that the container can report it.
+ * Each request gets a {@link StatementCanceller}, bound to the thread running its Callable.
+ * Disconnects, reported as an I/O error such as a client abort, are counted in customer.requests.deadline.exceeded,
+ * tagged "disconnected"; other async errors cancel the statements without being counted.
+ */
+@Slf4j
+public class StatementCancellingInterceptor implements CallableProcessingInterceptor {
+    private static final String CANCELLER_ATTRIBUTE = StatementCancellingInterceptor.class.getName() + ".canceller";
+
+    private final Counter disconnected;
+
+    public StatementCancellingInterceptor(MeterRegistry meterRegistry) {
+        this.disconnected = Counter.builder("customer.requests.deadline.exceeded")
+                .tag("reason", "disconnected")
+                .description("Requests that exceeded their deadline")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        request.setAttribute(CANCELLER_ATTRIBUTE, new StatementCanceller(), RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        StatementCanceller.bind(canceller(request));
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        StatementCanceller.bind(null);
+    }
+
+    @Override
+    public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+        cancel(request, "timed out");
+        return RESULT_NONE;
+    }
+
+    @Override
+    public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable error) {
+        if (isDisconnect(error)) {
+            disconnected.increment();
+        }
+        cancel(request, "failed with " + error);
+        return RESULT_NONE;
+    }
+
+    private static boolean isDisconnect(Throwable error) {
+        for (var cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void cancel(NativeWebRequest request, String reason) {
+        var canceller = canceller(request);
+        if (canceller != null) {
+            int cancelled = canceller.cancel();
+            log.debug("Async request {}, cancelled the statements on {} connections", reason, cancelled);
+        }
+    }
+
+    private static StatementCanceller canceller(NativeWebRequest request) {
+        return (StatementCanceller) request.getAttribute(CANCELLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.customerapi.exception;
+
+public class RecordingAlreadyRunningException extends RuntimeException{
+    public RecordingAlreadyRunningException(String message) {
+        super(message);
+    }
+}
@@ -1,28 +1,31 @@
 package com.example.customerapi.model;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
 /**
  * Entity class representing a customer.
  * Stores customer information such as full name, email, phone number, and active status.
- * The id field is the auto-generated primary key.
+ * The id field is the primary key, assigned by CustomerIdGenerator before the customer is first saved.
  * The created field stores the record creation time as Unix Epoch seconds.
  * The updated field stores the last update time for the record.
+ * The deleted field stores the soft deletion time; soft-deleted records are archived once it is older than the retention period.
  */
 @Entity
 @Table(name = "CUSTOMER")
 @Getter
 @Setter
-public class Customer {
+public class Customer implements Persistable<Long> {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id", nullable = false)
     private Long id;
     @Column(name = "created")
-    final private Long created = Instant.now().getEpochSecond();
+    @Setter(AccessLevel.NONE)
+    private Long created = Instant.now().getEpochSecond();
     @Column(name = "updated")
     private Long updated;
     @Column(name = "email")
@@ -33,4 +36,59 @@ public class Customer {
     private String phone;
     @Column(name = "is_active")
     private Boolean isActive = true;
+    @Column(name = "deleted")
+    private Long deleted;
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+    /**
+     * Tells Spring Data whether to persist or merge the customer.
+     * The ID is assigned before the first save, so it cannot be used to tell new customers apart.
+     *
+     * @return true if the customer has not been saved or loaded yet, false otherwise.
+     */
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    /**
+     * Creates a detached copy of the customer, as if it had been loaded from storage.
+     * Used by storage engines that must not share mutable instances with their callers.
+     *
+     * @return A persisted customer with the same field values.
+     */
+    public Customer copy() {
+        var copy = new Customer();
+        copy.id = id;
+        copy.created = created;
+        copy.updated = updated;
+        copy.email = email;
+        copy.fullName = fullName;
+        copy.phone = phone;
+        copy.isActive = isActive;
+        copy.deleted = deleted;
+        copy.persisted = true;
+        return copy;
+    }
+
+    /**
+     * Restores the creation time of a customer read back from storage.
+     *
+     * @param created The creation time as Unix Epoch seconds.
+     */
+    public void restoreCreated(Long created) {
+        this.created = created;
+    }
+
+    /**
+     * Marks the customer as saved, once JPA has loaded or persisted it, or another storage engine has stored it.
+     */
+    @PostLoad
+    @PostPersist
+    public void markPersisted() {
+        persisted = true;
+    }
 }
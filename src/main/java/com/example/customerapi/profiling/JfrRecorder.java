@@ -0,0 +1,135 @@
+package com.example.customerapi.profiling;
+
+import com.example.customerapi.exception.RecordingAlreadyRunningException;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Manages an on-demand Java Flight Recorder recording of this application instance.
+ * Recordings use the JDK's low-overhead "default" settings plus the customer API stage events,
+ * without the events that capture environment variables, system properties, JVM arguments and process command lines,
+ * which may carry credentials.
+ * Every recording is bounded: it stops after its duration, at most the configured maximum,
+ * and keeps at most the configured size on disk, discarding the oldest data beyond it.
+ * At most one recording runs at a time; the last one is kept after it stops so that it can be downloaded.
+ */
+@Component
+public class JfrRecorder {
+    private static final String SETTINGS = "default";
+    private static final String NAME = "customer-api";
+    private static final List<String> SENSITIVE_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation",
+            "jdk.SystemProcess");
+
+    private final Duration maxDuration;
+    private final DataSize maxSize;
+    private Recording recording;
+
+    public JfrRecorder(@Value("${customer.profiling.max-duration}") Duration maxDuration,
+                       @Value("${customer.profiling.max-size}") DataSize maxSize) {
+        this.maxDuration = maxDuration;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Starts a new recording, discarding the previous one if it has stopped.
+     *
+     * @param duration How long to record before stopping automatically, capped by the maximum duration.
+     * @return The started recording.
+     * @throws IllegalArgumentException        if the duration is missing or not positive.
+     * @throws RecordingAlreadyRunningException if a recording is already running.
+     */
+    public synchronized Recording start(Duration duration) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Recording duration should be positive");
+        }
+        if (recording != null && isRunning(recording)) {
+            throw new RecordingAlreadyRunningException(
+                    "Recording %d is already running".formatted(recording.getId()));
+        }
+        if (recording != null) {
+            recording.close();
+        }
+        var started = new Recording(settings());
+        started.setName(NAME);
+        started.setToDisk(true);
+        started.enable(StageEvent.class).withoutThreshold();
+        SENSITIVE_EVENTS.forEach(started::disable);
+        var bounded = duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+        started.setDuration(bounded);
+        started.setMaxAge(bounded);
+        started.setMaxSize(maxSize.toBytes());
+        started.start();
+        recording = started;
+        return started;
+    }
+
+    /**
+     * Stops the running recording.
+     *
+     * @return The stopped recording, or empty if there is no recording.
+     */
+    public synchronized Optional<Recording> stop() {
+        if (recording != null && isRunning(recording)) {
+            recording.stop();
+        }
+        return Optional.ofNullable(recording);
+    }
+
+    /**
+     * Returns the current or last recording.
+     *
+     * @return The recording, or empty if none was started.
+     */
+    public synchronized Optional<Recording> current() {
+        return Optional.ofNullable(recording);
+    }
+
+    /**
+     * Copies the data of the current or last recording into a JFR file.
+     *
+     * @return The content of the JFR file, or empty if no recording was started.
+     */
+    public synchronized Optional<byte[]> dump() {
+        if (recording == null) {
+            return Optional.empty();
+        }
+        try {
+            var file = Files.createTempFile(NAME, ".jfr");
+            try {
+                recording.dump(file);
+                return Optional.of(Files.readAllBytes(file));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static boolean isRunning(Recording recording) {
+        return recording.getState() == RecordingState.RUNNING || recording.getState() == RecordingState.DELAYED;
+    }
+
+    private static Configuration settings() {
+        try {
+            return Configuration.getConfiguration(SETTINGS);
+        } catch (IOException | ParseException exception) {
+            throw new IllegalStateException("Cannot load JFR settings %s".formatted(SETTINGS), exception);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.customerapi.profiling;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Entry points for recording request stages as {@link StageEvent}s.
+ * Events are tagged with the endpoint being handled on the current thread and with the stage's outcome.
+ * When no recording has the event enabled, the action runs directly without any bookkeeping.
+ */
+public final class Profiling {
+    public static final String VALIDATION = "validation";
+    public static final String MAPPING = "mapping";
+    public static final String UNIQUENESS_FULL_NAME = "uniqueness.fullName";
+    public static final String UNIQUENESS_EMAIL = "uniqueness.email";
+    public static final String UNIQUENESS_PHONE = "uniqueness.phone";
+    public static final String COMMIT = "commit";
+    public static final String SERIALIZATION = "serialization";
+
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+    private static final ThreadLocal<String> ENDPOINT = new ThreadLocal<>();
+
+    private Profiling() {
+    }
+
+    /**
+     * An action whose duration is recorded as a stage.
+     */
+    @FunctionalInterface
+    public interface Stage<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Runs the action and records its duration as the given stage.
+     * The outcome is "failure" if the action throws, "success" otherwise.
+     *
+     * @param stage  The name of the stage.
+     * @param action The action to run.
+     * @return The action's result.
+     */
+    public static <T, E extends Exception> T record(String stage, Stage<T, E> action) throws E {
+        var event = new StageEvent();
+        if (!event.isEnabled()) {
+            return action.run();
+        }
+        var outcome = FAILURE;
+        event.begin();
+        try {
+            T result = action.run();
+            outcome = SUCCESS;
+            return result;
+        } finally {
+            event.end();
+            commit(event, stage, outcome);
+        }
+    }
+
+    /**
+     * Records the commit of the current transaction, from the start of the commit until its completion.
+     * Does nothing outside a transaction; a rollback without a commit attempt is not recorded.
+     */
+    public static void recordCommit() {
+        var event = new StageEvent();
+        if (!event.isEnabled() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean committing;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                committing = true;
+                event.begin();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (committing) {
+                    event.end();
+                    commit(event, COMMIT, status == STATUS_COMMITTED ? SUCCESS : FAILURE);
+                }
+            }
+        });
+    }
+
+    /**
+     * Tags events recorded on the current thread with the given endpoint.
+     *
+     * @param endpoint The endpoint being handled, e.g. "GET /api/customers/{id}".
+     */
+    static void enterEndpoint(String endpoint) {
+        ENDPOINT.set(endpoint);
+    }
+
+    static void exitEndpoint() {
+        ENDPOINT.remove();
+    }
+
+    /**
+     * Wraps the action so that events it records are tagged with the endpoint of the current thread,
+     * whichever thread runs it.
+     *
+     * @param action The action to hand over to another thread.
+     * @return The wrapped action, or the action itself if the current thread is not handling an endpoint.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> action) {
+        var endpoint = ENDPOINT.get();
+        if (endpoint == null) {
+            return action;
+        }
+        return () -> {
+            var previous = ENDPOINT.get();
+            ENDPOINT.set(endpoint);
+            try {
+                return action.get();
+            } finally {
+                if (previous == null) {
+                    ENDPOINT.remove();
+                } else {
+                    ENDPOINT.set(previous);
+                }
+            }
+        };
+    }
+
+    private static void commit(StageEvent event, String stage, String outcome) {
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            event.endpoint = ENDPOINT.get();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+}
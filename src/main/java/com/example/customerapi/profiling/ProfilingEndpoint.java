@@ -0,0 +1,92 @@
+package com.example.customerapi.profiling;
+
+import com.example.customerapi.exception.RecordingAlreadyRunningException;
+import com.example.customerapi.web.dto.RecordingDto;
+import jdk.jfr.Recording;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Actuator endpoint for on-demand profiling of this application instance, served on the management port only,
+ * so that recordings, which describe the running process, are not reachable through the public API.
+ * Starts (POST /actuator/profiling with a "duration" such as "PT5M"), retrieves (GET), stops (DELETE)
+ * and downloads (GET /actuator/profiling/jfr) Java Flight Recorder recordings
+ * that include the customer API stage events.
+ */
+@Component
+@WebEndpoint(id = "profiling")
+@AllArgsConstructor
+public class ProfilingEndpoint {
+    private static final String JFR = "jfr";
+
+    private final JfrRecorder recorder;
+
+    /**
+     * Starts a recording.
+     *
+     * @param duration How long to record, capped by customer.profiling.max-duration.
+     * @return The started recording with status 201 Created, 400 Bad Request if the duration is not positive,
+     * or 409 Conflict if a recording is already running.
+     */
+    @WriteOperation
+    public WebEndpointResponse<RecordingDto> start(Duration duration) {
+        try {
+            return new WebEndpointResponse<>(toPayload(recorder.start(duration)), HttpStatus.CREATED.value());
+        } catch (IllegalArgumentException exception) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        } catch (RecordingAlreadyRunningException exception) {
+            return new WebEndpointResponse<>(HttpStatus.CONFLICT.value());
+        }
+    }
+
+    /**
+     * Retrieves the current or last recording.
+     *
+     * @return The recording, or null, answered with 404 Not Found, if none was started.
+     */
+    @ReadOperation
+    public RecordingDto recording() {
+        return recorder.current().map(this::toPayload).orElse(null);
+    }
+
+    /**
+     * Stops the running recording.
+     *
+     * @return The stopped recording, or null, answered with 404 Not Found, if none was started.
+     */
+    @DeleteOperation
+    public RecordingDto stop() {
+        return recorder.stop().map(this::toPayload).orElse(null);
+    }
+
+    /**
+     * Downloads the data recorded so far.
+     *
+     * @param format The file format; only "jfr" is supported.
+     * @return The JFR file, or null, answered with 404 Not Found, if no recording was started.
+     */
+    @ReadOperation(produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Resource download(@Selector String format) {
+        if (!JFR.equals(format)) {
+            return null;
+        }
+        return recorder.dump().<Resource>map(ByteArrayResource::new).orElse(null);
+    }
+
+    private RecordingDto toPayload(Recording recording) {
+        return new RecordingDto(recording.getId(), recording.getName(), recording.getState().name(),
+                recording.getStartTime() != null ? recording.getStartTime().toString() : null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.customerapi.profiling;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * JSON message converter that records response serialization as a stage event.
+ */
+public class ProfilingJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public ProfilingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        Profiling.record(Profiling.SERIALIZATION, () -> {
+            super.writeInternal(object, type, outputMessage);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.customerapi.profiling;
+
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+
+/**
+ * Validator that records request body validation as a stage event.
+ */
+public class ProfilingValidator implements SmartValidator {
+    private final SmartValidator delegate;
+
+    public ProfilingValidator(SmartValidator delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return delegate.supports(clazz);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors) {
+        Profiling.record(Profiling.VALIDATION, () -> {
+            delegate.validate(target, errors);
+            return null;
+        });
+    }
+
+    @Override
+    public void validate(Object target, Errors errors, Object... validationHints) {
+        Profiling.record(Profiling.VALIDATION, () -> {
+            delegate.validate(target, errors, validationHints);
+            return null;
+        });
+    }
+}
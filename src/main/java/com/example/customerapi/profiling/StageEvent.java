@@ -0,0 +1,29 @@
+package com.example.customerapi.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event covering one stage of handling a customer request,
+ * e.g. validation, mapping, a uniqueness lookup, transaction commit or JSON serialization.
+ * Disabled unless a recording enables it, so instrumented code pays only for an isEnabled check.
+ */
+@Name("com.example.customerapi.Stage")
+@Label("Customer API Stage")
+@Description("Time spent in one stage of handling a customer request")
+@Category("Customer API")
+@Enabled(false)
+@StackTrace(false)
+public class StageEvent extends Event {
+    @Label("Stage")
+    String stage;
+    @Label("Endpoint")
+    String endpoint;
+    @Label("Outcome")
+    String outcome;
+}
@@ -0,0 +1,61 @@
+package com.example.customerapi.repository;
+
+import com.example.customerapi.model.Customer;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Sparse fieldset rules shared by the {@link CustomerQueryRepository} implementations.
+ */
+public final class CustomerProjection {
+    /**
+     * Customer fields that can be requested, in the order they appear in CustomerDto.
+     */
+    public static final List<String> PROJECTABLE_FIELDS = List.of("id", "email", "fullName", "phone");
+
+    private CustomerProjection() {
+    }
+
+    /**
+     * Validates the requested fields and orders them as in CustomerDto.
+     *
+     * @param fields The requested customer fields.
+     * @return The requested fields in CustomerDto order.
+     * @throws IllegalArgumentException if no fields or an unknown field are requested.
+     */
+    public static List<String> resolve(Collection<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("Specify at least one field");
+        }
+        fields.stream()
+                .filter(field -> !PROJECTABLE_FIELDS.contains(field))
+                .findFirst()
+                .ifPresent(field -> {
+                    throw new IllegalArgumentException("Unknown field %s".formatted(field));
+                });
+        return PROJECTABLE_FIELDS.stream().filter(fields::contains).toList();
+    }
+
+    /**
+     * Copies the given fields of a customer into a map.
+     *
+     * @param customer The customer to project.
+     * @param columns  Fields returned by {@link #resolve(Collection)}.
+     * @return A map from field name to value, in the order of the columns.
+     */
+    public static Map<String, Object> project(Customer customer, List<String> columns) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String column : columns) {
+            row.put(column, switch (column) {
+                case "id" -> customer.getId();
+                case "email" -> customer.getEmail();
+                case "fullName" -> customer.getFullName();
+                case "phone" -> customer.getPhone();
+                default -> throw new IllegalArgumentException("Unknown field %s".formatted(column));
+            });
+        }
+        return row;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.customerapi.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+/**
+ * Custom repository fragment for Customer queries that cannot be expressed as derived query methods.
+ */
+public interface CustomerQueryRepository {
+    /**
+     * Retrieves only the requested columns of active customers.
+     *
+     * @param fields The customer fields to select, e.g. "id" and "email".
+     * @return A list of maps from field name to value, one per active customer.
+     */
+    List<Map<String, Object>> findActiveFields(Collection<String> fields);
+    /**
+     * Retrieves only the requested columns of an active customer by their ID.
+     *
+     * @param id     The ID of the customer.
+     * @param fields The customer fields to select.
+     * @return An Optional containing the map from field name to value if found, or empty otherwise.
+     */
+    Optional<Map<String, Object>> findActiveFieldsById(Long id, Collection<String> fields);
+    /**
+     * Estimates the number of active customers from the query planner's statistics.
+     * Does not scan the table, so the result may lag behind recent writes.
+     *
+     * @return The estimated number of customers with isActive=true.
+     */
+    long estimateActiveCount();
+}
@@ -0,0 +1,87 @@
+package com.example.customerapi.repository;
+
+import com.example.customerapi.model.Customer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+/**
+ * Criteria API and native SQL implementation of {@link CustomerQueryRepository}.
+ * Selects only the requested columns so that sparse fieldsets are projected in SQL rather than in memory.
+ */
+public class CustomerQueryRepositoryImpl implements CustomerQueryRepository {
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findActiveFields(Collection<String> fields) {
+        return query(fields, (builder, root) -> builder.isTrue(root.get("isActive")));
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findActiveFieldsById(Long id, Collection<String> fields) {
+        return query(fields, (builder, root) -> builder.and(
+                builder.equal(root.get("id"), id),
+                builder.isTrue(root.get("isActive"))))
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public long estimateActiveCount() {
+        var plan = entityManager.createNativeQuery("EXPLAIN SELECT 1 FROM customer WHERE is_active")
+                .getResultList();
+        if (plan.isEmpty()) {
+            return 0;
+        }
+        var rows = PLAN_ROWS.matcher(String.valueOf(plan.get(0)));
+        return rows.find() ? Long.parseLong(rows.group(1)) : 0;
+    }
+
+    /**
+     * Runs a tuple query selecting the given fields of customers matching the given restriction.
+     *
+     * @param fields      The customer fields to select.
+     * @param restriction Builds the where clause of the query.
+     * @return A list of maps from field name to value.
+     * @throws IllegalArgumentException if no fields or an unknown field are requested.
+     */
+    private List<Map<String, Object>> query(Collection<String> fields,
+                                            BiFunction<CriteriaBuilder, Root<Customer>, Predicate> restriction) {
+        var columns = CustomerProjection.resolve(fields);
+        var builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Customer> root = query.from(Customer.class);
+        List<Selection<?>> selections = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            selections.add(root.get(column).alias(column));
+        }
+        query.multiselect(selections).where(restriction.apply(builder, root));
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(tuple -> toMap(tuple, columns))
+                .toList();
+    }
+
+    private Map<String, Object> toMap(Tuple tuple, List<String> columns) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String column : columns) {
+            row.put(column, tuple.get(column));
+        }
+        return row;
+    }
+}
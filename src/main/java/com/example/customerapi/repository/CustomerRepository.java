@@ -1,17 +1,25 @@
 package com.example.customerapi.repository;
 
 import com.example.customerapi.model.Customer;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 /**
  * Repository interface for Customer entities.
- * Extends JpaRepository to inherit basic CRUD operations and additional query methods.
+ * Extends ListCrudRepository to inherit basic CRUD operations and CustomerQueryRepository for column projections.
+ * Only the operations the application uses are declared, so that every storage engine can implement all of them;
+ * the JPA repository still provides them through its JPA implementation.
  */
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends ListCrudRepository<Customer, Long>, CustomerQueryRepository {
+    /**
+     * Saves a customer and writes it to the storage immediately, so that constraint violations surface here.
+     * @param entity The customer to save.
+     * @return The saved customer.
+     */
+    <S extends Customer> S saveAndFlush(S entity);
     /**
      * Retrieves a list of active customers.
      * @return A list of Customer entities with isActive=true.
@@ -23,6 +31,17 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
      * @return An Optional containing the Customer entity if found, or empty otherwise.
      */
     Optional<Customer> findByIdAndIsActiveTrue(Long id);
+    /**
+     * Checks whether an active customer with the given ID exists without loading the entity.
+     * @param id The ID of the customer.
+     * @return true if an active customer with the given ID exists, false otherwise.
+     */
+    boolean existsByIdAndIsActiveTrue(Long id);
+    /**
+     * Counts active customers.
+     * @return The exact number of customers with isActive=true.
+     */
+    long countByIsActiveTrue();
     /**
      * Retrieves a Customer entity by the full name.
      *
@@ -0,0 +1,284 @@
+package com.example.customerapi.repository.memory;
+
+import com.example.customerapi.model.Customer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped append-only log of the writes to an {@link InMemoryCustomerRepository}, replayed on restart.
+ * The file is mapped in fixed-size regions; a record never spans two regions, and the unused tail of a region
+ * is skipped. Each record is framed as its payload length, a CRC32 of the payload and the payload, so that a record
+ * torn by a crash ends the replay instead of corrupting the restored state. Replay stops at the first empty or invalid
+ * record; only after an invalid one is the rest of its region zeroed.
+ * The log only grows; {@link #compact} rewrites it with one record per stored customer.
+ * Appends only copy into the mapping; they reach the disk when the OS writes the pages back,
+ * which survives a process crash but not a power loss, unless the log is opened with sync enabled.
+ * Not thread-safe; {@link InMemoryCustomerRepository} appends under its write lock.
+ */
+class CustomerLog implements AutoCloseable {
+    private static final int REGION_SIZE = 64 << 20;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int END_OF_REGION = -1;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_STRING = -1;
+
+    private final FileChannel channel;
+    private final boolean sync;
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long replayed;
+    private boolean torn;
+
+    CustomerLog(Path path, boolean sync) {
+        this.sync = sync;
+        try {
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot open customer log %s".formatted(path), exception);
+        }
+    }
+
+    /**
+     * Replays the log from the start and positions it after the last intact record.
+     *
+     * @param put    Receives each saved customer.
+     * @param remove Receives the ID of each deleted customer.
+     * @param clear  Called where all customers were deleted.
+     * @return The number of records replayed.
+     */
+    long replay(Consumer<Customer> put, LongConsumer remove, Runnable clear) {
+        replayed = 0;
+        torn = false;
+        try {
+            long size = channel.size();
+            for (regionStart = 0; ; regionStart += REGION_SIZE) {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+                if (!replayRegion(put, remove, clear)) {
+                    break;
+                }
+                if (regionStart + REGION_SIZE >= size) {
+                    regionStart += REGION_SIZE;
+                    region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+                    break;
+                }
+            }
+            if (torn) {
+                wipeTail();
+            }
+            return replayed;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot replay customer log", exception);
+        }
+    }
+
+    /**
+     * Writes the given customers to a new log next to this one and atomically replaces this log with it,
+     * so that a crash during compaction leaves either the old or the new log in place.
+     * This log is closed; appends continue in the returned one.
+     *
+     * @param path      The path of this log.
+     * @param customers The stored customers.
+     * @return The compacted log, positioned after its last record.
+     */
+    CustomerLog compact(Path path, Collection<Customer> customers) {
+        var compactedPath = path.resolveSibling(path.getFileName() + ".compacted");
+        try {
+            Files.deleteIfExists(compactedPath);
+            var compacted = new CustomerLog(compactedPath, sync);
+            compacted.region = compacted.channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+            customers.forEach(compacted::appendPut);
+            compacted.region.force();
+            Files.move(compactedPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            close();
+            return compacted;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot compact customer log %s".formatted(path), exception);
+        }
+    }
+
+    void appendPut(Customer customer) {
+        var email = encode(customer.getEmail());
+        var fullName = encode(customer.getFullName());
+        var phone = encode(customer.getPhone());
+        var payload = ByteBuffer.allocate(1 + 4 * Long.BYTES + 1
+                + 3 * Integer.BYTES + length(email) + length(fullName) + length(phone));
+        payload.put(PUT)
+                .putLong(customer.getId())
+                .putLong(orNull(customer.getCreated()))
+                .putLong(orNull(customer.getUpdated()))
+                .putLong(orNull(customer.getDeleted()))
+                .put((byte) (Boolean.TRUE.equals(customer.getIsActive()) ? 1 : 0));
+        putString(payload, email);
+        putString(payload, fullName);
+        putString(payload, phone);
+        append(payload);
+    }
+
+    void appendRemove(long id) {
+        append(ByteBuffer.allocate(1 + Long.BYTES).put(REMOVE).putLong(id));
+    }
+
+    void appendClear() {
+        append(ByteBuffer.allocate(1).put(CLEAR));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (region != null) {
+            region.force();
+        }
+        channel.close();
+    }
+
+    /**
+     * @return false if the log ends in this region, true if replay continues in the next one.
+     */
+    private boolean replayRegion(Consumer<Customer> put, LongConsumer remove, Runnable clear) {
+        while (region.remaining() >= HEADER_SIZE) {
+            int start = region.position();
+            int length = region.getInt();
+            if (length == END_OF_REGION) {
+                return true;
+            }
+            if (length == 0) {
+                region.position(start);
+                return false;
+            }
+            if (length < 0 || length > region.remaining() - Integer.BYTES) {
+                region.position(start);
+                torn = true;
+                return false;
+            }
+            int checksum = region.getInt();
+            var payload = region.slice(region.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                region.position(start);
+                torn = true;
+                return false;
+            }
+            region.position(region.position() + length);
+            switch (payload.get()) {
+                case PUT -> put.accept(readCustomer(payload));
+                case REMOVE -> remove.accept(payload.getLong());
+                case CLEAR -> clear.run();
+                default -> {
+                    region.position(start);
+                    torn = true;
+                    return false;
+                }
+            }
+            replayed++;
+        }
+        return true;
+    }
+
+    /**
+     * Zeroes the rest of the current region, so that leftovers of a torn record
+     * cannot be mistaken for records appended after it.
+     * Only non-zero bytes are written, so the untouched part of the file stays sparse.
+     */
+    private void wipeTail() {
+        for (int position = region.position(); position < region.capacity(); position++) {
+            if (region.get(position) != 0) {
+                region.put(position, (byte) 0);
+            }
+        }
+    }
+
+    private void append(ByteBuffer payload) {
+        payload.flip();
+        int recordSize = HEADER_SIZE + payload.remaining();
+        if (recordSize > REGION_SIZE) {
+            throw new IllegalArgumentException("Customer record of %d bytes does not fit the log".formatted(recordSize));
+        }
+        if (region.remaining() < recordSize) {
+            nextRegion();
+        }
+        crc.reset();
+        crc.update(payload.duplicate());
+        region.putInt(payload.remaining()).putInt((int) crc.getValue()).put(payload);
+        if (sync) {
+            region.force();
+        }
+    }
+
+    private void nextRegion() {
+        if (region.remaining() >= Integer.BYTES) {
+            region.putInt(END_OF_REGION);
+        }
+        region.force();
+        try {
+            regionStart += REGION_SIZE;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot extend customer log", exception);
+        }
+    }
+
+    private static Customer readCustomer(ByteBuffer payload) {
+        var customer = new Customer();
+        customer.setId(payload.getLong());
+        customer.restoreCreated(toNullable(payload.getLong()));
+        customer.setUpdated(toNullable(payload.getLong()));
+        customer.setDeleted(toNullable(payload.getLong()));
+        customer.setIsActive(payload.get() == 1);
+        customer.setEmail(getString(payload));
+        customer.setFullName(getString(payload));
+        customer.setPhone(getString(payload));
+        return customer;
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(NULL_STRING);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long orNull(Long value) {
+        return value == null ? NULL_LONG : value;
+    }
+
+    private static Long toNullable(long value) {
+        return value == NULL_LONG ? null : value;
+    }
+}
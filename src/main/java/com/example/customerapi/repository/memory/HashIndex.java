@@ -0,0 +1,66 @@
+package com.example.customerapi.repository.memory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash index from a customer column value to the rows holding it.
+ * Most keys map to a single row, so rows are kept in small arrays rather than collections.
+ * Null values are not indexed, as in a database index used for equality lookups.
+ * Not thread-safe; {@link InMemoryCustomerRepository} guards it with its lock.
+ */
+class HashIndex {
+    private static final int[] NO_ROWS = new int[0];
+
+    private final Map<String, int[]> rows = new HashMap<>();
+
+    void add(String key, int row) {
+        if (key != null) {
+            rows.merge(key, new int[]{row}, HashIndex::append);
+        }
+    }
+
+    void remove(String key, int row) {
+        if (key == null) {
+            return;
+        }
+        rows.computeIfPresent(key, (ignored, existing) -> {
+            var remaining = Arrays.stream(existing).filter(candidate -> candidate != row).toArray();
+            return remaining.length == 0 ? null : remaining;
+        });
+    }
+
+    /**
+     * @return The rows holding the key, or an empty array if there are none.
+     */
+    int[] find(String key) {
+        return key == null ? NO_ROWS : rows.getOrDefault(key, NO_ROWS);
+    }
+
+    /**
+     * Checks whether a row other than the given one holds the key.
+     *
+     * @param key The value to look up.
+     * @param row The row to ignore, e.g. the row being updated, or a negative value to ignore none.
+     * @return true if another row holds the key, false otherwise.
+     */
+    boolean containsOther(String key, int row) {
+        for (int candidate : find(key)) {
+            if (candidate != row) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void clear() {
+        rows.clear();
+    }
+
+    private static int[] append(int[] existing, int[] added) {
+        var merged = Arrays.copyOf(existing, existing.length + added.length);
+        System.arraycopy(added, 0, merged, existing.length, added.length);
+        return merged;
+    }
+}
@@ -0,0 +1,476 @@
+package com.example.customerapi.repository.memory;
+
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.repository.CustomerProjection;
+import com.example.customerapi.repository.CustomerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory implementation of {@link CustomerRepository} for running without a database.
+ * Customers are stored in a dense row array; a primitive long-keyed map resolves IDs to rows,
+ * hash indexes resolve full names, emails and phone numbers, and a bitmap over the rows marks active customers,
+ * so active lists and counts never look at deleted rows.
+ * IDs, emails and phone numbers are unique, and a violation is reported as a {@link DataIntegrityViolationException}
+ * naming the same constraint as the database schema.
+ * A single read-write lock guards all structures, because a save has to check and update several indexes atomically;
+ * reads run concurrently with each other.
+ * Entities are copied on the way in and out, so callers never share mutable state with the store;
+ * as with a detached JPA entity, changes are only stored by saving the customer.
+ * Writes are applied immediately and are visible to other threads before their transaction commits,
+ * as with the READ UNCOMMITTED isolation level. Within a transaction of the {@link InMemoryTransactionManager},
+ * the previous state of every changed customer is kept, and restored if the transaction rolls back.
+ * Writes can optionally be appended to a memory-mapped {@link CustomerLog} that is replayed on construction,
+ * and rewritten with only the stored customers once it holds mostly superseded records.
+ */
+@Slf4j
+public class InMemoryCustomerRepository implements CustomerRepository, AutoCloseable {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int COMPACTION_MIN_RECORDS = 10_000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntHashMap rowsById = new LongIntHashMap(INITIAL_CAPACITY);
+    private final HashIndex fullNames = new HashIndex();
+    private final HashIndex emails = new HashIndex();
+    private final HashIndex phones = new HashIndex();
+    private final BitSet active = new BitSet();
+    private CustomerLog changeLog;
+    private Customer[] rows = new Customer[INITIAL_CAPACITY];
+    private int rowCount;
+    private int[] freeRows = new int[16];
+    private int freeRowCount;
+
+    /**
+     * Creates an empty repository that keeps customers in memory only.
+     */
+    public InMemoryCustomerRepository() {
+        this.changeLog = null;
+    }
+
+    /**
+     * Creates a repository restored from, and appending to, the given log file.
+     *
+     * @param logPath The log file; created if it does not exist.
+     * @param sync    Whether to force every append to the disk before returning.
+     */
+    public InMemoryCustomerRepository(Path logPath, boolean sync) {
+        this.changeLog = new CustomerLog(logPath, sync);
+        long records = changeLog.replay(this::store, this::unstore, this::unstoreAll);
+        log.info("Restored {} customers from {} records in {}", rowsById.size(), records, logPath);
+        if (records > COMPACTION_MIN_RECORDS && records > 2L * rowsById.size()) {
+            changeLog = changeLog.compact(logPath, IntStream.of(allRows()).mapToObj(row -> rows[row]).toList());
+            log.info("Compacted {} to {} records", logPath, rowsById.size());
+        }
+    }
+
+    @Override
+    public List<Customer> findByIsActiveTrue() {
+        return read(() -> collect(active.stream().toArray()));
+    }
+
+    @Override
+    public Optional<Customer> findByIdAndIsActiveTrue(Long id) {
+        return read(() -> find(rowOf(id), active::get));
+    }
+
+    @Override
+    public boolean existsByIdAndIsActiveTrue(Long id) {
+        return read(() -> {
+            int row = rowOf(id);
+            return row != LongIntHashMap.NO_VALUE && active.get(row);
+        });
+    }
+
+    @Override
+    public long countByIsActiveTrue() {
+        return read(() -> (long) active.cardinality());
+    }
+
+    @Override
+    public Optional<Customer> findByFullName(String fullName) {
+        return read(() -> first(fullNames.find(fullName)));
+    }
+
+    @Override
+    public Optional<Customer> findByEmail(String email) {
+        return read(() -> first(emails.find(email)));
+    }
+
+    @Override
+    public Optional<Customer> findByPhone(String phone) {
+        return read(() -> first(phones.find(phone)));
+    }
+
+    @Override
+    public List<Map<String, Object>> findActiveFields(Collection<String> fields) {
+        var columns = CustomerProjection.resolve(fields);
+        return read(() -> active.stream()
+                .mapToObj(row -> CustomerProjection.project(rows[row], columns))
+                .toList());
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findActiveFieldsById(Long id, Collection<String> fields) {
+        var columns = CustomerProjection.resolve(fields);
+        return read(() -> {
+            int row = rowOf(id);
+            return row != LongIntHashMap.NO_VALUE && active.get(row)
+                    ? Optional.of(CustomerProjection.project(rows[row], columns))
+                    : Optional.empty();
+        });
+    }
+
+    /**
+     * The exact count is as cheap as an estimate here.
+     */
+    @Override
+    public long estimateActiveCount() {
+        return countByIsActiveTrue();
+    }
+
+    /**
+     * Stores a copy of the customer and marks the given customer as persisted.
+     * A new customer is inserted, while a persisted one replaces the stored customer with the same ID,
+     * as a JPA persist and merge would.
+     *
+     * @throws InvalidDataAccessApiUsageException if the customer has no ID.
+     * @throws DataIntegrityViolationException    if the customer is new and its ID is taken,
+     *                                            or another customer has the same email or phone number.
+     */
+    @Override
+    public <S extends Customer> S save(S entity) {
+        if (entity.getId() == null) {
+            throw new InvalidDataAccessApiUsageException("Customer ID must be assigned before saving");
+        }
+        var stored = entity.copy();
+        var isNew = entity.isNew();
+        write(() -> {
+            int row = rowsById.get(stored.getId());
+            if (isNew && row != LongIntHashMap.NO_VALUE) {
+                throw new DataIntegrityViolationException(
+                        "duplicate key value violates unique constraint \"customer_pkey\"");
+            }
+            if (emails.containsOther(stored.getEmail(), row)) {
+                throw new DataIntegrityViolationException(
+                        "duplicate key value violates unique constraint \"customer_email_unique\"");
+            }
+            if (phones.containsOther(stored.getPhone(), row)) {
+                throw new DataIntegrityViolationException(
+                        "duplicate key value violates unique constraint \"customer_phone_unique\"");
+            }
+            var previous = row == LongIntHashMap.NO_VALUE ? null : rows[row];
+            store(stored);
+            if (changeLog != null) {
+                changeLog.appendPut(stored);
+            }
+            recordUndo(stored.getId(), previous);
+        });
+        entity.markPersisted();
+        return entity;
+    }
+
+    @Override
+    public <S extends Customer> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends Customer> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public Optional<Customer> findById(Long id) {
+        return read(() -> find(rowOf(id), row -> true));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return read(() -> rowOf(id) != LongIntHashMap.NO_VALUE);
+    }
+
+    @Override
+    public List<Customer> findAll() {
+        return read(() -> collect(allRows()));
+    }
+
+    @Override
+    public List<Customer> findAllById(Iterable<Long> ids) {
+        return read(() -> {
+            List<Customer> found = new ArrayList<>();
+            ids.forEach(id -> find(rowOf(id), row -> true).ifPresent(found::add));
+            return found;
+        });
+    }
+
+    @Override
+    public long count() {
+        return read(() -> (long) rowsById.size());
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        write(() -> {
+            int row = rowOf(id);
+            if (row == LongIntHashMap.NO_VALUE) {
+                return;
+            }
+            var previous = rows[row];
+            unstore(id);
+            if (changeLog != null) {
+                changeLog.appendRemove(id);
+            }
+            recordUndo(id, previous);
+        });
+    }
+
+    @Override
+    public void delete(Customer entity) {
+        deleteById(entity.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Customer> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        write(() -> {
+            for (int row : allRows()) {
+                recordUndo(rows[row].getId(), rows[row]);
+            }
+            unstoreAll();
+            if (changeLog != null) {
+                changeLog.appendClear();
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (changeLog == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            changeLog.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts the customer into a row and all indexes, reusing the customer's row if it is already stored.
+     * Must be called under the write lock or during construction.
+     */
+    private void store(Customer customer) {
+        int row = rowsById.get(customer.getId());
+        if (row == LongIntHashMap.NO_VALUE) {
+            row = allocateRow();
+            rowsById.put(customer.getId(), row);
+        } else {
+            unindex(row);
+        }
+        rows[row] = customer;
+        fullNames.add(customer.getFullName(), row);
+        emails.add(customer.getEmail(), row);
+        phones.add(customer.getPhone(), row);
+        active.set(row, Boolean.TRUE.equals(customer.getIsActive()));
+    }
+
+    /**
+     * Removes the customer with the given ID from its row and all indexes.
+     * Must be called under the write lock or during construction.
+     *
+     * @return true if the customer was stored, false otherwise.
+     */
+    private boolean unstore(long id) {
+        int row = rowsById.remove(id);
+        if (row == LongIntHashMap.NO_VALUE) {
+            return false;
+        }
+        unindex(row);
+        rows[row] = null;
+        active.clear(row);
+        if (freeRowCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeRowCount << 1);
+        }
+        freeRows[freeRowCount++] = row;
+        return true;
+    }
+
+    private void unstoreAll() {
+        rowsById.clear();
+        fullNames.clear();
+        emails.clear();
+        phones.clear();
+        active.clear();
+        Arrays.fill(rows, 0, rowCount, null);
+        rowCount = 0;
+        freeRowCount = 0;
+    }
+
+    private void unindex(int row) {
+        var customer = rows[row];
+        fullNames.remove(customer.getFullName(), row);
+        emails.remove(customer.getEmail(), row);
+        phones.remove(customer.getPhone(), row);
+    }
+
+    private int allocateRow() {
+        if (freeRowCount > 0) {
+            return freeRows[--freeRowCount];
+        }
+        if (rowCount == rows.length) {
+            rows = Arrays.copyOf(rows, rowCount << 1);
+        }
+        return rowCount++;
+    }
+
+    private int rowOf(Long id) {
+        return id == null ? LongIntHashMap.NO_VALUE : rowsById.get(id);
+    }
+
+    private int[] allRows() {
+        return IntStream.range(0, rowCount).filter(row -> rows[row] != null).toArray();
+    }
+
+    private Optional<Customer> find(int row, IntPredicate condition) {
+        return row != LongIntHashMap.NO_VALUE && condition.test(row)
+                ? Optional.of(rows[row].copy())
+                : Optional.empty();
+    }
+
+    private Optional<Customer> first(int[] matches) {
+        return matches.length == 0 ? Optional.empty() : Optional.of(rows[matches[0]].copy());
+    }
+
+    /**
+     * Copies the customers in the given rows in ID order, the order the database returns them in for small tables.
+     */
+    private List<Customer> collect(int[] matches) {
+        List<Customer> customers = new ArrayList<>(matches.length);
+        for (int row : matches) {
+            customers.add(rows[row].copy());
+        }
+        customers.sort(Comparator.comparing(Customer::getId));
+        return customers;
+    }
+
+    /**
+     * Remembers the stored state of a customer before the current transaction changed it,
+     * so that a rollback can restore it. Writes outside a transaction take effect at once, as with auto-commit.
+     * Must be called under the write lock, after the change.
+     *
+     * @param id       The ID of the changed customer.
+     * @param previous The stored customer before the change, or null if it did not exist.
+     */
+    private void recordUndo(Long id, Customer previous) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        var undoLog = (UndoLog) TransactionSynchronizationManager.getResource(this);
+        if (undoLog == null) {
+            undoLog = new UndoLog();
+            TransactionSynchronizationManager.bindResource(this, undoLog);
+            TransactionSynchronizationManager.registerSynchronization(undoLog);
+        }
+        undoLog.changes.add(new Change(id, previous));
+    }
+
+    /**
+     * Restores the given changes in reverse order, logging the restored state like any other write.
+     */
+    private void undo(List<Change> changes) {
+        write(() -> {
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                var change = changes.get(i);
+                if (change.previous() == null) {
+                    if (unstore(change.id()) && changeLog != null) {
+                        changeLog.appendRemove(change.id());
+                    }
+                } else {
+                    store(change.previous());
+                    if (changeLog != null) {
+                        changeLog.appendPut(change.previous());
+                    }
+                }
+            }
+        });
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private record Change(Long id, Customer previous) {
+    }
+
+    /**
+     * The changes of one transaction, bound to it as a resource and undone if it rolls back.
+     * Unbound while the transaction is suspended, so that an inner transaction keeps its own log.
+     */
+    private final class UndoLog implements TransactionSynchronization {
+        private final List<Change> changes = new ArrayList<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(InMemoryCustomerRepository.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(InMemoryCustomerRepository.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InMemoryCustomerRepository.this);
+            if (status == STATUS_ROLLED_BACK) {
+                undo(changes);
+            }
+        }
+    }
+}
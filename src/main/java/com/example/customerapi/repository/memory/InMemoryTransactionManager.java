@@ -0,0 +1,86 @@
+package com.example.customerapi.repository.memory;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction manager for the in-memory repository, which applies every write immediately.
+ * Transactions have no resources of their own to commit or roll back; a marker bound to the thread only lets
+ * inner transactional methods join the outer transaction and mark it rollback-only.
+ * Transactions still drive transaction synchronizations: the repository registers one per transaction
+ * that undoes its writes on rollback, and code registering commit callbacks behaves as with a database.
+ * There is no isolation: other threads see writes before their transaction commits,
+ * and nested transactions with savepoints are not supported.
+ */
+public class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+    @Override
+    protected Object doGetTransaction() {
+        return new InMemoryTransaction((Marker) TransactionSynchronizationManager.getResource(this));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((InMemoryTransaction) transaction).marker != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        var marker = new Marker();
+        ((InMemoryTransaction) transaction).marker = marker;
+        TransactionSynchronizationManager.bindResource(this, marker);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        ((InMemoryTransaction) transaction).marker = null;
+        return TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+        TransactionSynchronizationManager.bindResource(this, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        ((InMemoryTransaction) status.getTransaction()).marker.rollbackOnly = true;
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    private static final class Marker {
+        private boolean rollbackOnly;
+    }
+
+    private static final class InMemoryTransaction implements SmartTransactionObject {
+        private Marker marker;
+
+        private InMemoryTransaction(Marker marker) {
+            this.marker = marker;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return marker != null && marker.rollbackOnly;
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
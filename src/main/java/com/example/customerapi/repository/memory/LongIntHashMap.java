@@ -0,0 +1,126 @@
+package com.example.customerapi.repository.memory;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-negative int values.
+ * Avoids boxing the customer ID and allocating an entry per mapping, so lookups by ID do not create garbage.
+ * Uses linear probing with backward-shift deletion, so removals leave no tombstones behind.
+ * Not thread-safe; {@link InMemoryCustomerRepository} guards it with its lock.
+ */
+class LongIntHashMap {
+    static final int NO_VALUE = -1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongIntHashMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1);
+    }
+
+    /**
+     * @return The value mapped to the key, or {@link #NO_VALUE} if there is none.
+     */
+    int get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (values[slot] == NO_VALUE) {
+                return NO_VALUE;
+            }
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping.
+     *
+     * @param value A non-negative value.
+     */
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must not be negative");
+        }
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash();
+        }
+    }
+
+    /**
+     * Removes the mapping of the key, shifting back later entries of its probe sequence into the freed slot.
+     *
+     * @return The removed value, or {@link #NO_VALUE} if there was none.
+     */
+    int remove(long key) {
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        if (removed == NO_VALUE) {
+            return NO_VALUE;
+        }
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != NO_VALUE; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = NO_VALUE;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, NO_VALUE);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash() {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(oldKeys.length << 1);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != NO_VALUE) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.customerapi.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+/**
+ * Strategies for counting active customers.
+ * EXACT runs a COUNT over active rows, APPROXIMATE reads the query planner's row estimate.
+ */
+public enum CountMode {
+    EXACT,
+    APPROXIMATE;
+
+    /**
+     * Resolves a count mode by its case-insensitive name.
+     *
+     * @param name The name of the count mode, e.g. "exact".
+     * @return The matching CountMode.
+     * @throws IllegalArgumentException if no count mode has the given name.
+     */
+    public static CountMode of(String name) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.name().equals(name.toUpperCase(Locale.ROOT)))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown count mode %s".formatted(name)));
+    }
+}
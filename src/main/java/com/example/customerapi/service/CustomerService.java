@@ -3,7 +3,9 @@ package com.example.customerapi.service;
 import com.example.customerapi.model.Customer;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface CustomerService {
     Customer add(Customer customer);
@@ -12,9 +14,15 @@ public interface CustomerService {
 
     Optional<Customer> findByIdAndIsActiveTrue(Long id);
 
+    List<Map<String, Object>> findActiveFields(Set<String> fields);
+
+    Optional<Map<String, Object>> findActiveFieldsById(Long id, Set<String> fields);
+
     Customer update(Customer customer);
 
     boolean existsById(Long id);
 
+    long countActive(CountMode mode);
+
     void deleteById(Long id);
 }
@@ -0,0 +1,165 @@
+package com.example.customerapi.service.archive;
+
+import com.example.customerapi.sharding.CustomerDirectory;
+import com.example.customerapi.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that moves soft-deleted customers older than the retention period
+ * from the customer table into customer_archive.
+ * Keeps the customer table and its indexes sized to live data, so active-only queries do not pay for dead rows.
+ * Rows are moved in batches, each batch a single DELETE ... RETURNING statement feeding an INSERT,
+ * and rows locked by concurrent transactions are skipped until the next run.
+ * Every shard is archived in turn; table and index sizes, summed over shards,
+ * and the latency of an active-only query, summed over shards, are measured before and after each run
+ * and published as metrics.
+ * With sharding, the emails and phone numbers of archived customers are released from the customer directory
+ * after each batch, so that they no longer block new customers; a failed release is logged,
+ * and those values stay claimed until released by hand.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "customer.archive.enabled", havingValue = "true")
+public class CustomerArchiver {
+    private static final String ARCHIVE_BATCH = """
+            WITH moved AS (
+                DELETE FROM customer
+                WHERE id IN (SELECT id FROM customer
+                             WHERE NOT is_active AND deleted < ?
+                             ORDER BY id
+                             LIMIT ?
+                             FOR UPDATE SKIP LOCKED)
+                RETURNING id, created, updated, deleted, email, full_name, phone)
+            INSERT INTO customer_archive (id, created, updated, deleted, email, full_name, phone)
+            SELECT id, created, updated, deleted, email, full_name, phone FROM moved
+            RETURNING id
+            """;
+    private static final String ACTIVE_QUERY = "SELECT count(*) FROM customer WHERE is_active";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter router;
+    private final CustomerDirectory directory;
+    private final Duration retention;
+    private final int batchSize;
+    private final Counter archived;
+    private final Timer runs;
+    private final AtomicLong tableSize = new AtomicLong();
+    private final AtomicLong indexSize = new AtomicLong();
+    private final AtomicLong activeQueryLatency = new AtomicLong();
+
+    public CustomerArchiver(JdbcTemplate jdbcTemplate,
+                            ShardRouter router,
+                            ObjectProvider<CustomerDirectory> directory,
+                            MeterRegistry meterRegistry,
+                            @Value("${customer.archive.retention}") Duration retention,
+                            @Value("${customer.archive.batch-size}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.router = router;
+        this.directory = directory.getIfAvailable();
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.archived = Counter.builder("customer.archive.rows")
+                .description("Soft-deleted customers moved to the archive table")
+                .register(meterRegistry);
+        this.runs = Timer.builder("customer.archive.runs")
+                .description("Duration of archival runs")
+                .register(meterRegistry);
+        Gauge.builder("customer.table.size", tableSize, AtomicLong::get)
+                .baseUnit("bytes")
+                .description("Size of the customer table as of the last archival run")
+                .register(meterRegistry);
+        Gauge.builder("customer.index.size", indexSize, AtomicLong::get)
+                .baseUnit("bytes")
+                .description("Size of the customer table indexes as of the last archival run")
+                .register(meterRegistry);
+        TimeGauge.builder("customer.active.query.latency", activeQueryLatency, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .description("Latency of counting active customers as of the last archival run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Archives soft-deleted customers whose deletion time is older than the retention period.
+     * Runs batches until one moves fewer rows than the batch size.
+     *
+     * @return The number of archived customers.
+     */
+    @Scheduled(fixedDelayString = "${customer.archive.interval}", initialDelayString = "${customer.archive.interval}")
+    public long archive() {
+        var cutoff = Instant.now().minus(retention).getEpochSecond();
+        long tableBefore = measure("SELECT pg_table_size('customer')");
+        long indexBefore = measure("SELECT pg_indexes_size('customer')");
+        long latencyBefore = measureActiveQueryLatency();
+        var sample = Timer.start();
+        var total = new AtomicLong();
+        router.onEachShard(shard -> {
+            List<Long> batch;
+            do {
+                batch = jdbcTemplate.queryForList(ARCHIVE_BATCH, Long.class, cutoff, batchSize);
+                total.addAndGet(batch.size());
+                releaseClaims(batch);
+            } while (batch.size() == batchSize);
+        });
+        sample.stop(runs);
+        archived.increment(total.get());
+        tableSize.set(measure("SELECT pg_table_size('customer')"));
+        indexSize.set(measure("SELECT pg_indexes_size('customer')"));
+        activeQueryLatency.set(measureActiveQueryLatency());
+        log.info("Archived {} customers deleted before {}; customer table {} -> {} bytes, indexes {} -> {} bytes, "
+                        + "active query {} -> {} us",
+                total.get(), Instant.ofEpochSecond(cutoff), tableBefore, tableSize.get(), indexBefore, indexSize.get(),
+                TimeUnit.NANOSECONDS.toMicros(latencyBefore), TimeUnit.NANOSECONDS.toMicros(activeQueryLatency.get()));
+        return total.get();
+    }
+
+    private void releaseClaims(List<Long> ids) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            directory.release(ids);
+        } catch (RuntimeException exception) {
+            log.error("Cannot release the directory claims of archived customers {}", ids, exception);
+        }
+    }
+
+    private long measure(String sql) {
+        var size = new AtomicLong();
+        router.onEachShard(shard -> {
+            var shardSize = jdbcTemplate.queryForObject(sql, Long.class);
+            size.addAndGet(shardSize == null ? 0 : shardSize);
+        });
+        return size.get();
+    }
+
+    /**
+     * Times the active-only query that list and count reads rely on, summed over shards.
+     * The query runs twice per shard and the second run is timed, so that the first pays for cold caches.
+     */
+    private long measureActiveQueryLatency() {
+        var latency = new AtomicLong();
+        router.onEachShard(shard -> {
+            jdbcTemplate.queryForObject(ACTIVE_QUERY, Long.class);
+            long start = System.nanoTime();
+            jdbcTemplate.queryForObject(ACTIVE_QUERY, Long.class);
+            latency.addAndGet(System.nanoTime() - start);
+        });
+        return latency.get();
+    }
+}
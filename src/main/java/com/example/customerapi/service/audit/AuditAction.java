@@ -0,0 +1,10 @@
+package com.example.customerapi.service.audit;
+
+/**
+ * Customer mutations recorded in the audit trail.
+ */
+public enum AuditAction {
+    CREATE,
+    UPDATE,
+    DELETE
+}
@@ -0,0 +1,17 @@
+package com.example.customerapi.service.audit;
+
+/**
+ * What the audit trail does with a record when its queue is full.
+ */
+public enum AuditOverflowPolicy {
+    /**
+     * Discards the record and counts it as dropped; the request is never slowed down.
+     */
+    DROP,
+    /**
+     * Writes the record on the calling thread; no record is lost, but the request pays for the insert.
+     * The queue fills up when the database is slow or failing, so this applies back-pressure to writes:
+     * every mutating request then waits for an insert into that database, after its own transaction committed.
+     */
+    CALLER_RUNS
+}
@@ -0,0 +1,14 @@
+package com.example.customerapi.service.audit;
+
+import java.util.Map;
+
+/**
+ * One entry of the audit trail.
+ *
+ * @param customerId The ID of the mutated customer.
+ * @param action     The kind of mutation.
+ * @param changes    The changed fields by name.
+ * @param occurred   When the mutation was committed, as Unix Epoch milliseconds.
+ */
+public record AuditRecord(long customerId, AuditAction action, Map<String, FieldChange> changes, long occurred) {
+}
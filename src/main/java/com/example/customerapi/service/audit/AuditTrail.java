@@ -0,0 +1,412 @@
+package com.example.customerapi.service.audit;
+
+import com.example.customerapi.concurrent.BoundedQueue;
+import com.example.customerapi.model.Customer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous audit trail of customer creations, updates and soft deletions.
+ * Records are published once the mutating transaction commits and queued on a lock-free bounded queue;
+ * a background writer drains the queue and inserts the records into customer_audit in JDBC batches,
+ * so requests never wait for the audit insert.
+ * Field changes of an update are staged by the mapper when it applies the update DTO,
+ * and picked up by the service when it saves the same customer instance.
+ * A batch that cannot be inserted is retried with exponential backoff, and once its attempts are used up,
+ * appended to the spill file if one is configured; spilled records are inserted when the writer starts again,
+ * at least once. When the queue is full the overflow policy decides whether a record is dropped, the default,
+ * or written by the caller, which slows down writes for as long as the database is slow.
+ * With sharding, records of all shards are written to the default shard.
+ * The trail is inactive when disabled or when no DataSource is configured.
+ * <p>
+ * Records can still be lost:
+ * records queued or being retried when the process crashes, i.e. at most the queue capacity plus one batch;
+ * records dropped by the DROP overflow policy;
+ * batches that fail all attempts when no spill file is configured or the spill file cannot be written;
+ * and, with synchronous commit disabled, batches committed in the last few hundred milliseconds before
+ * a database crash, as they are committed without waiting for the WAL flush.
+ */
+@Slf4j
+@Component
+public class AuditTrail implements SmartLifecycle {
+    private static final String INSERT =
+            "INSERT INTO customer_audit (customer_id, action, changes, occurred) VALUES (?, ?, ?::jsonb, ?)";
+    private static final ThreadLocal<StagedChanges> STAGED = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final BoundedQueue<AuditRecord> queue;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final AuditOverflowPolicy overflowPolicy;
+    private final boolean synchronousCommit;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int maxAttempts;
+    private final long retryBackoffNanos;
+    private final Path spillPath;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter callerRuns;
+    private final Counter spilled;
+    private final Counter failed;
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditTrail(ObjectProvider<DataSource> dataSource,
+                      PlatformTransactionManager transactionManager,
+                      ObjectMapper objectMapper,
+                      MeterRegistry meterRegistry,
+                      @Value("${customer.audit.enabled}") boolean enabled,
+                      @Value("${customer.audit.queue-capacity}") int queueCapacity,
+                      @Value("${customer.audit.batch-size}") int batchSize,
+                      @Value("${customer.audit.flush-interval}") Duration flushInterval,
+                      @Value("${customer.audit.synchronous-commit}") boolean synchronousCommit,
+                      @Value("${customer.audit.overflow-policy}") AuditOverflowPolicy overflowPolicy,
+                      @Value("${customer.audit.max-attempts}") int maxAttempts,
+                      @Value("${customer.audit.retry-backoff}") Duration retryBackoff,
+                      @Value("${customer.audit.spill-path}") String spillPath) {
+        var source = dataSource.getIfAvailable();
+        this.enabled = enabled && source != null;
+        this.jdbcTemplate = source == null ? null : new JdbcTemplate(source);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new BoundedQueue<>(queueCapacity);
+        this.objectMapper = objectMapper;
+        this.overflowPolicy = overflowPolicy;
+        this.synchronousCommit = synchronousCommit;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffNanos = retryBackoff.toNanos();
+        this.spillPath = spillPath.isBlank() ? null : Path.of(spillPath);
+        this.written = records(meterRegistry, "written");
+        this.dropped = records(meterRegistry, "dropped");
+        this.callerRuns = records(meterRegistry, "caller_runs");
+        this.spilled = records(meterRegistry, "spilled");
+        this.failed = records(meterRegistry, "failed");
+        Gauge.builder("customer.audit.queue.size", queue, BoundedQueue::size)
+                .description("Audit records waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stages the field changes applied to a customer on the current thread,
+     * until the service records the update of that customer.
+     * Only one update is staged per thread; staging another replaces it.
+     *
+     * @param before A copy of the customer taken before the changes.
+     * @param after  The changed customer.
+     */
+    public void stage(Customer before, Customer after) {
+        if (enabled) {
+            STAGED.set(new StagedChanges(after, diff(before, after)));
+        }
+    }
+
+    /**
+     * Records the creation of a customer once the current transaction commits.
+     *
+     * @param customer The saved customer.
+     */
+    public void created(Customer customer) {
+        publish(customer.getId(), AuditAction.CREATE, diff(null, customer));
+    }
+
+    /**
+     * Discards the changes staged on the current thread, e.g. because the update failed before it was recorded,
+     * so that they are not kept alive by a pooled thread.
+     */
+    public void discardStaged() {
+        STAGED.remove();
+    }
+
+    /**
+     * Records the update of a customer once the current transaction commits, with the changes staged for it.
+     * If no changes were staged for this customer instance, the new field values are recorded without previous ones.
+     *
+     * @param customer The updated customer.
+     */
+    public void updated(Customer customer) {
+        if (!enabled) {
+            return;
+        }
+        var staged = STAGED.get();
+        STAGED.remove();
+        var changes = staged != null && staged.customer() == customer ? staged.changes() : diff(null, customer);
+        publish(customer.getId(), AuditAction.UPDATE, changes);
+    }
+
+    /**
+     * Records the soft deletion of a customer once the current transaction commits.
+     *
+     * @param customer The soft-deleted customer.
+     */
+    public void deleted(Customer customer) {
+        publish(customer.getId(), AuditAction.DELETE, Map.of("isActive", new FieldChange(true, false)));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "customer-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Lets the writer flush the queued records and waits for it to finish.
+     */
+    @Override
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the web server, so that records of requests still in progress are flushed.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void publish(Long customerId, AuditAction action, Map<String, FieldChange> changes) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(new AuditRecord(customerId, action, changes, System.currentTimeMillis()));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(new AuditRecord(customerId, action, changes, System.currentTimeMillis()));
+            }
+        });
+    }
+
+    private void submit(AuditRecord record) {
+        if (queue.offer(record)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP -> dropped.increment();
+            case CALLER_RUNS -> {
+                callerRuns.increment();
+                write(List.of(record), 1);
+            }
+        }
+    }
+
+    /**
+     * Writes the records spilled before the last stop, then writes queued records in batches of up to the batch size;
+     * parks for the flush interval when the queue is empty. Keeps draining after a stop until the queue is empty.
+     */
+    private void drain() {
+        recoverSpilled();
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            if (queue.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+            write(batch, maxAttempts);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Inserts the records, retrying with exponential backoff, and spills them once all attempts failed.
+     * While the writer retries, the queue fills up and the overflow policy applies to new records.
+     * After a stop no more retries are made, so that shutdown is not delayed by a database outage.
+     */
+    private void write(List<AuditRecord> records, int attempts) {
+        long backoffNanos = retryBackoffNanos;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                insert(records);
+                written.increment(records.size());
+                return;
+            } catch (RuntimeException exception) {
+                if (attempt >= attempts || !running) {
+                    spill(records, exception);
+                    return;
+                }
+                log.warn("Cannot write {} audit records, retrying in {} ms (attempt {} of {})", records.size(),
+                        TimeUnit.NANOSECONDS.toMillis(backoffNanos), attempt, attempts, exception);
+                LockSupport.parkNanos(backoffNanos);
+                backoffNanos *= 2;
+            }
+        }
+    }
+
+    /**
+     * Appends records that could not be inserted to the spill file, one JSON object per line,
+     * and forces them to the disk; without a spill file, or if it cannot be written, they are counted as failed.
+     */
+    private synchronized void spill(List<AuditRecord> records, RuntimeException cause) {
+        if (spillPath != null) {
+            try {
+                var lines = new StringBuilder();
+                for (var record : records) {
+                    lines.append(objectMapper.writeValueAsString(record)).append('\n');
+                }
+                var directory = spillPath.toAbsolutePath().getParent();
+                if (directory != null) {
+                    Files.createDirectories(directory);
+                }
+                try (var channel = FileChannel.open(spillPath,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    channel.write(ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+                    channel.force(true);
+                }
+                spilled.increment(records.size());
+                log.error("Cannot write {} audit records, spilled them to {}", records.size(), spillPath, cause);
+                return;
+            } catch (IOException exception) {
+                cause.addSuppressed(exception);
+            }
+        }
+        failed.increment(records.size());
+        log.error("Cannot write {} audit records, they are lost", records.size(), cause);
+    }
+
+    /**
+     * Inserts the records spilled before the last stop, renaming the spill file first,
+     * so that records spilled meanwhile are kept for the next start. Records are deleted from the disk
+     * only once inserted or spilled again; a crash in between inserts them again on the next start.
+     */
+    private void recoverSpilled() {
+        if (spillPath == null) {
+            return;
+        }
+        var recovering = spillPath.resolveSibling(spillPath.getFileName() + ".recovering");
+        try {
+            if (Files.notExists(recovering)) {
+                if (Files.notExists(spillPath)) {
+                    return;
+                }
+                Files.move(spillPath, recovering, StandardCopyOption.ATOMIC_MOVE);
+            }
+            List<AuditRecord> records = new ArrayList<>();
+            for (var line : Files.readAllLines(recovering, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    records.add(objectMapper.readValue(line, AuditRecord.class));
+                } catch (IOException exception) {
+                    log.warn("Skipping unreadable spilled audit record in {}", recovering, exception);
+                }
+            }
+            for (int from = 0; from < records.size(); from += batchSize) {
+                write(records.subList(from, Math.min(from + batchSize, records.size())), maxAttempts);
+            }
+            Files.delete(recovering);
+            log.info("Recovered {} spilled audit records from {}", records.size(), recovering);
+        } catch (IOException exception) {
+            log.error("Cannot recover spilled audit records from {}", spillPath, exception);
+        }
+    }
+
+    /**
+     * Inserts the records in one transaction of their own, so that the caller-runs path does not join
+     * the request's already committed transaction.
+     */
+    private void insert(List<AuditRecord> records) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!synchronousCommit) {
+                jdbcTemplate.execute("SET LOCAL synchronous_commit = off");
+            }
+            jdbcTemplate.batchUpdate(INSERT, records, records.size(), (statement, record) -> {
+                statement.setLong(1, record.customerId());
+                statement.setString(2, record.action().name());
+                statement.setString(3, toJson(record.changes()));
+                statement.setLong(4, record.occurred());
+            });
+        });
+    }
+
+    private String toJson(Map<String, FieldChange> changes) {
+        try {
+            return objectMapper.writeValueAsString(changes);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Cannot serialize audit changes", exception);
+        }
+    }
+
+    private static Map<String, FieldChange> diff(Customer before, Customer after) {
+        Map<String, FieldChange> changes = new LinkedHashMap<>();
+        compare(changes, "fullName", before == null ? null : before.getFullName(), after.getFullName());
+        compare(changes, "email", before == null ? null : before.getEmail(), after.getEmail());
+        compare(changes, "phone", before == null ? null : before.getPhone(), after.getPhone());
+        return changes;
+    }
+
+    private static void compare(Map<String, FieldChange> changes, String field, Object before, Object after) {
+        if (!Objects.equals(before, after)) {
+            changes.put(field, new FieldChange(before, after));
+        }
+    }
+
+    private static Counter records(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("customer.audit.records")
+                .tag("outcome", outcome)
+                .description("Audit records by outcome")
+                .register(meterRegistry);
+    }
+
+    private record StagedChanges(Customer customer, Map<String, FieldChange> changes) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.customerapi.service.audit;
+
+/**
+ * Value of a customer field before and after a mutation.
+ *
+ * @param before The previous value, null for a created customer.
+ * @param after  The new value.
+ */
+public record FieldChange(Object before, Object after) {
+}
@@ -0,0 +1,64 @@
+package com.example.customerapi.service.id;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generator of globally unique, roughly time-ordered customer IDs.
+ * Each ID packs 41 bits of milliseconds since 2024-01-01T00:00:00Z, a 10 bit node ID and a 12 bit sequence,
+ * so IDs generated by different application instances never collide as long as their node IDs differ.
+ * IDs are known before the customer is inserted, which lets the caller pick the shard to store it in.
+ * Instances sharing a database must each be given their own node ID through customer.id.node-id
+ * (e.g. the CUSTOMER_ID_NODEID environment variable). With sharding enabled startup fails without one;
+ * otherwise a single instance is assumed and the node ID defaults to 0.
+ * IDs exceed 2^53, so the API serializes them as strings.
+ */
+@Component
+public class CustomerIdGenerator {
+    static final long EPOCH = 1704067200000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    private long lastTimestamp = -1;
+    private long sequence;
+
+    public CustomerIdGenerator(@Value("${customer.id.node-id:#{null}}") Long node,
+                               @Value("${customer.sharding.enabled:false}") boolean sharded) {
+        if (node == null && !sharded) {
+            node = 0L;
+        }
+        if (node == null) {
+            throw new IllegalStateException(
+                    "customer.id.node-id is not set but sharding is enabled; give every instance a distinct node ID between 0 and %d"
+                            .formatted(MAX_NODE));
+        }
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node ID should be between 0 and %d".formatted(MAX_NODE));
+        }
+        this.node = node;
+    }
+
+    /**
+     * Generates the next ID.
+     * If the clock goes backwards or the sequence for the current millisecond is exhausted,
+     * the generator moves on to the next millisecond instead of waiting for the clock.
+     *
+     * @return A new unique ID.
+     */
+    public synchronized long nextId() {
+        long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                timestamp++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+        return ((timestamp - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+}
@@ -2,28 +2,48 @@ package com.example.customerapi.service.impl;
 
 import com.example.customerapi.exception.CustomerAlreadyExistsException;
 import com.example.customerapi.model.Customer;
+import com.example.customerapi.profiling.Profiling;
 import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.service.CountMode;
 import com.example.customerapi.service.CustomerService;
+import com.example.customerapi.service.audit.AuditTrail;
+import com.example.customerapi.service.id.CustomerIdGenerator;
+import com.example.customerapi.service.uniqueness.UniquenessFilter;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service implementation for Customer-related operations.
  * Handles customer creation, retrieval, updating, and deletion.
+ * Every committed creation, update and soft deletion is recorded in the audit trail.
+ * Reads run in read-only transactions too, so that the request deadline bounds their statements.
  */
 @Service
 @AllArgsConstructor
 public class CustomerServiceImpl implements CustomerService {
+    private static final String EMAIL_CONSTRAINT = "customer_email_unique";
+    private static final String PHONE_CONSTRAINT = "customer_phone_unique";
+
     private final CustomerRepository repository;
+    private final UniquenessFilter uniquenessFilter;
+    private final CustomerIdGenerator idGenerator;
+    private final AuditTrail auditTrail;
 
     /**
      * Adds a new customer to the repository.
+     * Assigns a new ID unless the caller already did.
+     * Email and phone lookups are skipped when the uniqueness filter shows the values are new;
+     * the unique constraints then reject any duplicate the filter could not see.
      *
      * @param customer The customer object to add.
      * @return The saved customer object.
@@ -32,19 +52,25 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     @Transactional
     public Customer add(Customer customer) {
+        Profiling.recordCommit();
         if (isFullNameInUse(customer)) {
             throw new CustomerAlreadyExistsException(
                     "Full name %s is already in use".formatted(customer.getFullName()));
         }
-        if (isEmailInUse(customer)) {
+        if (uniquenessFilter.mightContainEmail(customer.getEmail()) && isEmailInUse(customer)) {
             throw new CustomerAlreadyExistsException(
                     "Email %s is already in use".formatted(customer.getEmail()));
         }
-        if (isPhoneInUse(customer)) {
+        if (uniquenessFilter.mightContainPhone(customer.getPhone()) && isPhoneInUse(customer)) {
             throw new CustomerAlreadyExistsException(
                     "Phone number %s is already in use".formatted(customer.getEmail()));
         }
-        return repository.save(customer);
+        if (customer.getId() == null) {
+            customer.setId(idGenerator.nextId());
+        }
+        var saved = saveUnique(customer);
+        auditTrail.created(saved);
+        return saved;
     }
 
     /**
@@ -53,6 +79,7 @@ public class CustomerServiceImpl implements CustomerService {
      * @return A list of active Customer entities.
      */
     @Override
+    @Transactional(readOnly = true)
     public List<Customer> findByIsActiveTrue() {
         return repository.findByIsActiveTrue();
     }
@@ -64,10 +91,36 @@ public class CustomerServiceImpl implements CustomerService {
      * @return An Optional containing the Customer entity if found, or empty otherwise.
      */
     @Override
+    @Transactional(readOnly = true)
     public Optional<Customer> findByIdAndIsActiveTrue(Long id) {
         return repository.findByIdAndIsActiveTrue(id);
     }
 
+    /**
+     * Retrieves only the requested fields of active customers.
+     *
+     * @param fields The customer fields to select, e.g. "id" and "email".
+     * @return A list of maps from field name to value, one per active customer.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findActiveFields(Set<String> fields) {
+        return repository.findActiveFields(fields);
+    }
+
+    /**
+     * Retrieves only the requested fields of an active customer by their ID.
+     *
+     * @param id     The ID of the customer.
+     * @param fields The customer fields to select.
+     * @return An Optional containing the map from field name to value if found, or empty otherwise.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> findActiveFieldsById(Long id, Set<String> fields) {
+        return repository.findActiveFieldsById(id, fields);
+    }
+
     /**
      * Updates an existing customer.
      * Sets the updated timestamp to the current time.
@@ -78,42 +131,104 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     @Transactional(isolation = Isolation.REPEATABLE_READ)
     public Customer update(Customer customer) {
-        if (isFullNameInUse(customer)) {
-            throw new CustomerAlreadyExistsException(
-                    "Full name %s is already in use".formatted(customer.getFullName()));
+        try {
+            Profiling.recordCommit();
+            if (isFullNameInUse(customer)) {
+                throw new CustomerAlreadyExistsException(
+                        "Full name %s is already in use".formatted(customer.getFullName()));
+            }
+            if (uniquenessFilter.mightContainEmail(customer.getEmail()) && isEmailInUse(customer)) {
+                throw new CustomerAlreadyExistsException(
+                        "Email %s is already in use".formatted(customer.getEmail()));
+            }
+            if (uniquenessFilter.mightContainPhone(customer.getPhone()) && isPhoneInUse(customer)) {
+                throw new CustomerAlreadyExistsException(
+                        "Phone number %s is already in use".formatted(customer.getEmail()));
+            }
+            customer.setUpdated(Instant.now().getEpochSecond());
+            var saved = saveUnique(customer);
+            auditTrail.updated(customer);
+            return saved;
+        } finally {
+            auditTrail.discardStaged();
         }
-        if (isEmailInUse(customer)) {
-            throw new CustomerAlreadyExistsException(
-                    "Email %s is already in use".formatted(customer.getEmail()));
-        }
-        if (isPhoneInUse(customer)) {
-            throw new CustomerAlreadyExistsException(
-                    "Phone number %s is already in use".formatted(customer.getEmail()));
-        }
-        customer.setUpdated(Instant.now().getEpochSecond());
-        return repository.save(customer);
     }
 
     /**
-     * Checks if a customer exists with the given ID.
+     * Checks if an active customer exists with the given ID.
+     * Soft-deleted customers are treated as absent, consistent with findByIdAndIsActiveTrue.
      *
      * @param id The ID of the customer.
-     * @return True if a customer with the given ID exists, false otherwise.
+     * @return True if an active customer with the given ID exists, false otherwise.
      */
     @Override
+    @Transactional(readOnly = true)
     public boolean existsById(Long id) {
-        return repository.existsById(id);
+        return repository.existsByIdAndIsActiveTrue(id);
     }
 
     /**
-     * Soft-deletes a customer by setting their isActive flag to false.
+     * Counts active customers.
+     *
+     * @param mode EXACT to count active rows, APPROXIMATE to use the query planner's estimate.
+     * @return The number of active customers.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countActive(CountMode mode) {
+        return switch (mode) {
+            case EXACT -> repository.countByIsActiveTrue();
+            case APPROXIMATE -> repository.estimateActiveCount();
+        };
+    }
+
+    /**
+     * Soft-deletes a customer by setting their isActive flag to false and recording the deletion time.
+     * The record stays in the customer table until it is archived.
+     * Saves explicitly rather than relying on dirty checking, so that repositories without a persistence context
+     * store the change too.
      *
      * @param id The ID of the customer to delete.
      */
     @Override
     @Transactional
     public void deleteById(Long id) {
-        findByIdAndIsActiveTrue(id).filter(Customer::getIsActive).ifPresent(customer -> customer.setIsActive(false));
+        Profiling.recordCommit();
+        findByIdAndIsActiveTrue(id).filter(Customer::getIsActive).ifPresent(customer -> {
+            customer.setIsActive(false);
+            customer.setDeleted(Instant.now().getEpochSecond());
+            repository.save(customer);
+            auditTrail.deleted(customer);
+        });
+    }
+    /**
+     * Saves the customer and flushes immediately, so that a unique constraint violation surfaces here
+     * rather than at commit, and records the saved email and phone number in the uniqueness filter.
+     * Only violations of the email and phone constraints are reported as the customer already existing;
+     * any other integrity violation is rethrown as is.
+     *
+     * @param customer The customer to save.
+     * @return The saved customer object.
+     * @throws CustomerAlreadyExistsException if the email or phone number is already in use.
+     */
+    private Customer saveUnique(Customer customer) {
+        Customer saved;
+        try {
+            saved = repository.saveAndFlush(customer);
+        } catch (DataIntegrityViolationException exception) {
+            var cause = Objects.toString(exception.getMostSpecificCause().getMessage(), "");
+            if (cause.contains(EMAIL_CONSTRAINT)) {
+                throw new CustomerAlreadyExistsException(
+                        "Email %s is already in use".formatted(customer.getEmail()));
+            }
+            if (cause.contains(PHONE_CONSTRAINT)) {
+                throw new CustomerAlreadyExistsException(
+                        "Phone number %s is already in use".formatted(customer.getPhone()));
+            }
+            throw exception;
+        }
+        uniquenessFilter.put(saved);
+        return saved;
     }
     /**
      * Checks if the given full name is already in use by another customer.
@@ -123,8 +238,8 @@ public class CustomerServiceImpl implements CustomerService {
      * @return true if the full name is in use by another customer, false otherwise.
      */
     private boolean isFullNameInUse(Customer customer) {
-        return repository.findByFullName(customer.getFullName())
-                .filter(found -> !found.getId().equals(customer.getId())).isPresent();
+        return Profiling.record(Profiling.UNIQUENESS_FULL_NAME, () -> repository.findByFullName(customer.getFullName())
+                .filter(found -> !found.getId().equals(customer.getId())).isPresent());
     }
     /**
      * Checks if the given email address is already in use by another customer.
@@ -134,8 +249,8 @@ public class CustomerServiceImpl implements CustomerService {
      * @return true if the email is in use by another customer, false otherwise.
      */
     private boolean isEmailInUse(Customer customer) {
-        return repository.findByEmail(customer.getEmail())
-                .filter(found -> !found.getId().equals(customer.getId())).isPresent();
+        return Profiling.record(Profiling.UNIQUENESS_EMAIL, () -> repository.findByEmail(customer.getEmail())
+                .filter(found -> !found.getId().equals(customer.getId())).isPresent());
     }  /**
      * Checks if the given phone number is already in use by another customer.
      * Excludes the customer being updated (if any).
@@ -144,8 +259,8 @@ public class CustomerServiceImpl implements CustomerService {
      * @return true if the phone is in use by another customer, false otherwise.
      */
     private boolean isPhoneInUse(Customer customer) {
-        return repository.findByPhone(customer.getPhone())
-                .filter(found -> !found.getId().equals(customer.getId())).isPresent();
+        return Profiling.record(Profiling.UNIQUENESS_PHONE, () -> repository.findByPhone(customer.getPhone())
+                .filter(found -> !found.getId().equals(customer.getId())).isPresent());
     }
 
 }
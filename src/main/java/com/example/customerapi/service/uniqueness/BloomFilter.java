@@ -0,0 +1,192 @@
+package com.example.customerapi.service.uniqueness;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of strings.
+ * A negative answer from {@link #mightContain(String)} is definite, a positive answer may be a false positive.
+ * Bits are set with lock-free compare-and-set, so concurrent writers and readers never block each other.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private final AtomicLong insertions = new AtomicLong();
+
+    private BloomFilter(long bitSize, int hashCount) {
+        this.bits = new AtomicLongArray(Math.toIntExact((bitSize + Long.SIZE - 1) / Long.SIZE));
+        this.bitSize = (long) bits.length() * Long.SIZE;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Creates a Bloom filter sized for the given number of keys and false-positive probability.
+     *
+     * @param expectedInsertions        The number of keys the filter is expected to hold.
+     * @param falsePositiveProbability The acceptable false-positive probability once the filter is full.
+     * @return An empty Bloom filter.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+        }
+        long bitSize = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability)
+                / (Math.log(2) * Math.log(2)));
+        int hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        return new BloomFilter(bitSize, hashCount);
+    }
+
+    /**
+     * Adds a key to the filter. The key only counts as an insertion if it set at least one bit,
+     * so adding a key again, e.g. when a customer is re-read after a snapshot, does not inflate the count.
+     *
+     * @param key The key to add.
+     * @return true if the filter changed, false if the key might already have been added.
+     */
+    public boolean put(String key) {
+        long hash = hash(key);
+        long hash1 = hash;
+        long hash2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            changed |= setBit(Math.floorMod(hash1 + i * hash2, bitSize));
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /**
+     * Checks whether a key might have been added to the filter.
+     *
+     * @param key The key to check.
+     * @return false if the key was definitely never added, true if it might have been.
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        long hash1 = hash;
+        long hash2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            if (!getBit(Math.floorMod(hash1 + i * hash2, bitSize))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of keys added to the filter, not counting keys whose bits were all set already;
+     * a slight undercount of the distinct keys, as a new key that is a false positive is not counted either.
+     */
+    public long insertions() {
+        return insertions.get();
+    }
+
+    /**
+     * @return The memory used by the filter's bit array, in bytes.
+     */
+    public long memoryBytes() {
+        return bitSize / Byte.SIZE;
+    }
+
+    /**
+     * Estimates the current false-positive probability from the fraction of bits set.
+     *
+     * @return The probability that a key never added is reported as possibly present.
+     */
+    public double falsePositiveProbability() {
+        long setBits = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            setBits += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) setBits / bitSize, hashCount);
+    }
+
+    /**
+     * @return The number of bytes {@link #writeTo(ByteBuffer)} writes.
+     */
+    public int serializedSize() {
+        return Long.BYTES + Integer.BYTES + Long.BYTES + bits.length() * Long.BYTES;
+    }
+
+    /**
+     * Writes the filter's geometry, insertion count and bits.
+     * Bits set concurrently may or may not be included.
+     *
+     * @param target The buffer to write to, with at least {@link #serializedSize()} bytes remaining.
+     */
+    public void writeTo(ByteBuffer target) {
+        target.putLong(bitSize).putInt(hashCount).putLong(insertions.get());
+        for (int i = 0; i < bits.length(); i++) {
+            target.putLong(bits.get(i));
+        }
+    }
+
+    /**
+     * Adds the keys of a filter written by {@link #writeTo(ByteBuffer)} to this filter.
+     *
+     * @param source The buffer to read from.
+     * @return true if the written filter had the same geometry and was added, false if it was skipped.
+     */
+    public boolean putAll(ByteBuffer source) {
+        long writtenBitSize = source.getLong();
+        int writtenHashCount = source.getInt();
+        long writtenInsertions = source.getLong();
+        if (writtenBitSize != bitSize || writtenHashCount != hashCount) {
+            return false;
+        }
+        for (int i = 0; i < bits.length(); i++) {
+            long word = source.getLong();
+            if (word != 0) {
+                bits.getAndAccumulate(i, word, (current, added) -> current | added);
+            }
+        }
+        insertions.addAndGet(writtenInsertions);
+        return true;
+    }
+
+    /**
+     * @return true if this call set the bit, false if it was set already.
+     */
+    private boolean setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+        return true;
+    }
+
+    private boolean getBit(long index) {
+        return (bits.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the key's UTF-8 bytes, finalized with a SplitMix64 mix.
+     */
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
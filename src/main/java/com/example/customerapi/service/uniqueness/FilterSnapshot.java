@@ -0,0 +1,104 @@
+package com.example.customerapi.service.uniqueness;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot file of the email and phone Bloom filters of a {@link UniquenessFilter}.
+ * The file holds a magic number, a format version, the watermark of the customers reflected in the filters,
+ * both filters as written by {@link BloomFilter#writeTo(ByteBuffer)} and a CRC32 of everything before it.
+ * Files are written to a temporary sibling and moved into place, so a reader never sees a partial snapshot,
+ * and read through a memory mapping rather than copied onto the heap first.
+ */
+final class FilterSnapshot {
+    private static final int MAGIC = 0x43555346;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    private final Watermark watermark;
+    private final ByteBuffer filters;
+
+    private FilterSnapshot(Watermark watermark, ByteBuffer filters) {
+        this.watermark = watermark;
+        this.filters = filters;
+    }
+
+    /**
+     * The newest changes to the customer table reflected in a snapshot.
+     *
+     * @param maxId      The highest customer ID seen.
+     * @param maxUpdated The latest update time seen, as Unix Epoch seconds.
+     */
+    record Watermark(long maxId, long maxUpdated) {
+    }
+
+    static void write(Path path, Watermark watermark, BloomFilter emails, BloomFilter phones) throws IOException {
+        var directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        int size = HEADER_SIZE + emails.serializedSize() + phones.serializedSize() + Integer.BYTES;
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(watermark.maxId()).putLong(watermark.maxUpdated());
+            emails.writeTo(buffer);
+            phones.writeTo(buffer);
+            var crc = new CRC32();
+            crc.update(buffer.slice(0, buffer.position()));
+            buffer.putInt((int) crc.getValue());
+            buffer.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot written for filters of the same size as the given ones.
+     *
+     * @return The snapshot, or empty if the file does not exist, is damaged or was written for other filter sizes.
+     */
+    static Optional<FilterSnapshot> read(Path path, BloomFilter emails, BloomFilter phones) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size != HEADER_SIZE + emails.serializedSize() + phones.serializedSize() + Integer.BYTES) {
+                return Optional.empty();
+            }
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int checksumAt = (int) size - Integer.BYTES;
+            var crc = new CRC32();
+            crc.update(buffer.slice(0, checksumAt));
+            if (buffer.getInt(checksumAt) != (int) crc.getValue()
+                    || buffer.getInt() != MAGIC
+                    || buffer.getInt() != VERSION) {
+                return Optional.empty();
+            }
+            var watermark = new Watermark(buffer.getLong(), buffer.getLong());
+            return Optional.of(new FilterSnapshot(watermark, buffer.slice(HEADER_SIZE, checksumAt - HEADER_SIZE)));
+        }
+    }
+
+    Watermark watermark() {
+        return watermark;
+    }
+
+    /**
+     * Adds the snapshot's keys to the given filters.
+     *
+     * @return true if both filters had the snapshot's geometry and were restored, false otherwise.
+     */
+    boolean restore(BloomFilter emails, BloomFilter phones) {
+        var source = filters.duplicate();
+        return emails.putAll(source) && phones.putAll(source);
+    }
+}
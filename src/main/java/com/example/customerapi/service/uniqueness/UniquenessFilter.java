@@ -0,0 +1,282 @@
+package com.example.customerapi.service.uniqueness;
+
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory probabilistic set of the emails and phone numbers already stored in the customer table.
+ * Lets the create and update paths skip the uniqueness lookups for keys that are definitely new;
+ * the unique constraints on the customer table remain the final guard.
+ * The filter is built at startup by streaming the table and kept current by the service's write methods.
+ * Keys written by other application instances are not seen, which only makes the constraint do more work.
+ * Without a DataSource, e.g. with the in-memory repository, the filter starts empty
+ * and the repository's own unique indexes reject duplicates.
+ * <p>
+ * To spare the database a full table read on every restart, the filter can be periodically snapshotted to a file
+ * together with a watermark of the highest customer ID and update time it reflects.
+ * Snapshots are disabled unless customer.uniqueness-filter.snapshot.path is set; the file has to be on storage that
+ * outlives the instance, e.g. a persistent volume, and must not be shared between instances.
+ * On startup a snapshot is accepted only if the database has not gone backwards past its watermark,
+ * and only customers created or updated after the watermark are then read. Their keys may already be in the snapshot,
+ * which the filter does not count as new insertions.
+ * Keys missed this way, e.g. written by another instance with a lower ID, are again caught by the unique constraints.
+ */
+@Slf4j
+@Component
+public class UniquenessFilter implements SmartInitializingSingleton, DisposableBean {
+    private static final int FETCH_SIZE = 1000;
+    private static final String ALL_KEYS = "SELECT id, updated, email, phone FROM customer";
+    private static final String CHANGED_KEYS =
+            "SELECT id, updated, email, phone FROM customer WHERE id > ? OR updated >= ?";
+    private static final String MAX_ID = "SELECT COALESCE(MAX(id), 0) FROM customer";
+
+    private final BloomFilter emails;
+    private final BloomFilter phones;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter router;
+    private final Counter emailMisses;
+    private final Counter phoneMisses;
+    private final Path snapshotPath;
+    private final AtomicLong maxId = new AtomicLong();
+    private final AtomicLong maxUpdated = new AtomicLong();
+    private long snapshotInsertions = -1;
+
+    public UniquenessFilter(ObjectProvider<DataSource> dataSource,
+                            PlatformTransactionManager transactionManager,
+                            ShardRouter router,
+                            MeterRegistry meterRegistry,
+                            @Value("${customer.uniqueness-filter.expected-insertions}") long expectedInsertions,
+                            @Value("${customer.uniqueness-filter.false-positive-probability}") double falsePositiveProbability,
+                            @Value("${customer.uniqueness-filter.snapshot.path}") String snapshotPath) {
+        this.emails = BloomFilter.create(expectedInsertions, falsePositiveProbability);
+        this.phones = BloomFilter.create(expectedInsertions, falsePositiveProbability);
+        var source = dataSource.getIfAvailable();
+        this.jdbcTemplate = source == null ? null : new JdbcTemplate(source);
+        if (jdbcTemplate != null) {
+            jdbcTemplate.setFetchSize(FETCH_SIZE);
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.router = router;
+        this.emailMisses = registerMetrics(meterRegistry, "email", emails);
+        this.phoneMisses = registerMetrics(meterRegistry, "phone", phones);
+        this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+    }
+
+    /**
+     * Restores the filter from the snapshot and reads the customers changed since, or,
+     * without a usable snapshot, streams the emails and phone numbers of all customers on every shard into the filter.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (jdbcTemplate == null) {
+            log.info("No database configured, uniqueness filter starts empty");
+            return;
+        }
+        var snapshot = readSnapshot();
+        if (snapshot.isPresent()) {
+            var watermark = snapshot.get().watermark();
+            router.onEachShard(shard -> stream(CHANGED_KEYS, watermark.maxId(), watermark.maxUpdated()));
+            log.info("Uniqueness filter restored from {} with {} emails and {} phone numbers",
+                    snapshotPath, emails.insertions(), phones.insertions());
+            return;
+        }
+        router.onEachShard(shard -> stream(ALL_KEYS));
+        log.info("Uniqueness filter built with {} emails and {} phone numbers",
+                emails.insertions(), phones.insertions());
+    }
+
+    /**
+     * Writes the filter to the snapshot file, unless snapshots are disabled or nothing was added since the last one.
+     * The watermark is taken before the bits are copied, so every customer it covers is in the snapshot.
+     */
+    @Scheduled(fixedDelayString = "${customer.uniqueness-filter.snapshot.interval}",
+            initialDelayString = "${customer.uniqueness-filter.snapshot.interval}")
+    public synchronized void snapshot() {
+        if (jdbcTemplate == null || snapshotPath == null) {
+            return;
+        }
+        long insertions = emails.insertions() + phones.insertions();
+        if (insertions == snapshotInsertions) {
+            return;
+        }
+        var watermark = new FilterSnapshot.Watermark(maxId.get(), maxUpdated.get());
+        try {
+            FilterSnapshot.write(snapshotPath, watermark, emails, phones);
+            snapshotInsertions = insertions;
+        } catch (IOException exception) {
+            log.warn("Cannot write uniqueness filter snapshot {}", snapshotPath, exception);
+        }
+    }
+
+    /**
+     * Snapshots the filter on shutdown, so that the next start reads as few customers as possible.
+     */
+    @Override
+    public void destroy() {
+        snapshot();
+    }
+
+    /**
+     * Checks whether the email might already be in use.
+     *
+     * @param email The email address to check.
+     * @return false if no customer has the email, true if one might have it or the email is null.
+     */
+    public boolean mightContainEmail(String email) {
+        return mightContain(emails, emailMisses, email);
+    }
+
+    /**
+     * Checks whether the phone number might already be in use.
+     *
+     * @param phone The phone number to check.
+     * @return false if no customer has the phone number, true if one might have it or the phone number is null.
+     */
+    public boolean mightContainPhone(String phone) {
+        return mightContain(phones, phoneMisses, phone);
+    }
+
+    /**
+     * Records the email and phone number of a saved customer.
+     *
+     * @param customer The saved customer.
+     */
+    public void put(Customer customer) {
+        putEmail(customer.getEmail());
+        putPhone(customer.getPhone());
+        observe(customer.getId(), customer.getUpdated());
+    }
+
+    /**
+     * Reads the snapshot and restores it into the filter if the database has not gone backwards past its watermark,
+     * e.g. because the snapshot was taken against another database.
+     *
+     * @return The restored snapshot, or empty if the filter has to be built from the whole table.
+     */
+    private Optional<FilterSnapshot> readSnapshot() {
+        if (snapshotPath == null) {
+            return Optional.empty();
+        }
+        Optional<FilterSnapshot> snapshot;
+        try {
+            snapshot = FilterSnapshot.read(snapshotPath, emails, phones);
+        } catch (IOException exception) {
+            log.warn("Cannot read uniqueness filter snapshot {}", snapshotPath, exception);
+            return Optional.empty();
+        }
+        if (snapshot.isEmpty()) {
+            log.info("No usable uniqueness filter snapshot at {}", snapshotPath);
+            return Optional.empty();
+        }
+        var watermark = snapshot.get().watermark();
+        long databaseMaxId = databaseMaxId();
+        if (databaseMaxId < watermark.maxId()) {
+            log.warn("Uniqueness filter snapshot {} is ahead of the database ({} > {}), ignoring it",
+                    snapshotPath, watermark.maxId(), databaseMaxId);
+            return Optional.empty();
+        }
+        if (!snapshot.get().restore(emails, phones)) {
+            return Optional.empty();
+        }
+        observe(watermark.maxId(), watermark.maxUpdated());
+        return snapshot;
+    }
+
+    private long databaseMaxId() {
+        var result = new AtomicLong();
+        router.onEachShard(shard ->
+                result.accumulateAndGet(jdbcTemplate.queryForObject(MAX_ID, Long.class), Math::max));
+        return result.get();
+    }
+
+    /**
+     * Streams the emails and phone numbers of the selected customers into the filter.
+     * Runs in a read-only transaction so that the PostgreSQL driver fetches rows in batches
+     * instead of materializing the result.
+     */
+    private void stream(String sql, Object... arguments) {
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.query(sql, resultSet -> {
+                    putEmail(resultSet.getString("email"));
+                    putPhone(resultSet.getString("phone"));
+                    observe(resultSet.getLong("id"), resultSet.getLong("updated"));
+                }, arguments));
+    }
+
+    /**
+     * Advances the watermark; called after the customer's keys were added.
+     */
+    private void observe(Long id, Long updated) {
+        if (id != null) {
+            maxId.accumulateAndGet(id, Math::max);
+        }
+        if (updated != null) {
+            maxUpdated.accumulateAndGet(updated, Math::max);
+        }
+    }
+
+    private void putEmail(String email) {
+        if (email != null) {
+            emails.put(email);
+        }
+    }
+
+    private void putPhone(String phone) {
+        if (phone != null) {
+            phones.put(phone);
+        }
+    }
+
+    /**
+     * Null keys are never stored, so they always fall through to the database lookup.
+     */
+    private boolean mightContain(BloomFilter filter, Counter misses, String key) {
+        if (key == null || filter.mightContain(key)) {
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    private Counter registerMetrics(MeterRegistry meterRegistry, String key, BloomFilter filter) {
+        Gauge.builder("customer.uniqueness.filter.memory", filter, BloomFilter::memoryBytes)
+                .tag("key", key)
+                .baseUnit("bytes")
+                .description("Memory used by the uniqueness Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("customer.uniqueness.filter.false.positive.probability", filter,
+                        BloomFilter::falsePositiveProbability)
+                .tag("key", key)
+                .description("Estimated false-positive probability of the uniqueness Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("customer.uniqueness.filter.insertions", filter, BloomFilter::insertions)
+                .tag("key", key)
+                .description("Keys added to the uniqueness Bloom filter")
+                .register(meterRegistry);
+        return Counter.builder("customer.uniqueness.filter.misses")
+                .tag("key", key)
+                .description("Uniqueness lookups skipped because the key was definitely new")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.customerapi.sharding;
+
+import com.example.customerapi.exception.CustomerAlreadyExistsException;
+import com.example.customerapi.model.Customer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Global directory of customer emails and phone numbers, kept in the first shard database.
+ * Shard-local lookups cannot see duplicates stored on other shards, so every customer's email and phone number
+ * are claimed here first; the directory's unique constraints make the claim atomic across all shards.
+ * Customers stored before the directory existed are claimed by {@link #backfill} when the application starts.
+ */
+@Slf4j
+public class CustomerDirectory {
+    private static final String BACKFILL_PAGE = "SELECT id, email, phone FROM customer WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String CLAIM =
+            "INSERT INTO customer_directory (customer_id, email, phone) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String COUNT_CLAIMED = "SELECT count(*) FROM customer_directory WHERE customer_id = ANY (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerDirectory(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Claims the email and phone number of a new customer.
+     *
+     * @param customer The new customer, with its ID already assigned.
+     * @throws CustomerAlreadyExistsException if another customer already claimed the email or phone number.
+     */
+    public void register(Customer customer) {
+        try {
+            jdbcTemplate.update("INSERT INTO customer_directory (customer_id, email, phone) VALUES (?, ?, ?)",
+                    customer.getId(), customer.getEmail(), customer.getPhone());
+        } catch (DataIntegrityViolationException exception) {
+            throw alreadyExists(exception, customer.getEmail(), customer.getPhone());
+        }
+    }
+
+    /**
+     * Claims a new phone number for an existing customer and releases the previous one.
+     *
+     * @param id    The ID of the customer.
+     * @param phone The new phone number.
+     * @throws CustomerAlreadyExistsException if another customer already claimed the phone number.
+     * @throws IllegalStateException          if the customer is not registered, so its uniqueness cannot be enforced.
+     */
+    public void changePhone(Long id, String phone) {
+        int updated;
+        try {
+            updated = jdbcTemplate.update("UPDATE customer_directory SET phone = ? WHERE customer_id = ?", phone, id);
+        } catch (DataIntegrityViolationException exception) {
+            throw alreadyExists(exception, null, phone);
+        }
+        if (updated == 0) {
+            throw new IllegalStateException("Customer %d is not registered in the customer directory".formatted(id));
+        }
+    }
+
+    /**
+     * Retrieves the phone number currently claimed by a customer.
+     *
+     * @param id The ID of the customer.
+     * @return An Optional containing the phone number, or empty if the customer has none or is not registered.
+     */
+    public Optional<String> findPhone(Long id) {
+        return jdbcTemplate.queryForList("SELECT phone FROM customer_directory WHERE customer_id = ?", String.class, id)
+                .stream()
+                .filter(Objects::nonNull)
+                .findFirst();
+    }
+
+    /**
+     * Releases the email and phone number claimed by a customer.
+     *
+     * @param id The ID of the customer.
+     */
+    public void release(Long id) {
+        jdbcTemplate.update("DELETE FROM customer_directory WHERE customer_id = ?", id);
+    }
+
+    /**
+     * Releases the emails and phone numbers claimed by several customers, e.g. once they are archived.
+     *
+     * @param ids The IDs of the customers.
+     */
+    public void release(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM customer_directory WHERE customer_id = ?", ids, ids.size(),
+                    (statement, id) -> statement.setLong(1, id));
+        }
+    }
+
+    /**
+     * Claims the emails and phone numbers of the customers stored on a shard that are not registered yet,
+     * reading the shard in pages ordered by ID; registered customers are left as they are.
+     * A customer whose email or phone number another customer has claimed is skipped and reported in the log,
+     * since that duplicate predates the directory and has to be resolved by hand.
+     * Also verifies that every customer is stored on the shard its ID maps to: enabling sharding over a database
+     * that already holds customers is not supported, as their IDs would route them to other shards.
+     *
+     * @param shard    The shard index.
+     * @param source   The DataSource of the shard.
+     * @param router   Maps customer IDs to shards.
+     * @param pageSize The number of customers read and claimed at a time.
+     * @return The number of customers claimed.
+     * @throws IllegalStateException if a customer is stored on another shard than its ID maps to.
+     */
+    public long backfill(int shard, DataSource source, ShardRouter router, int pageSize) {
+        var shardTemplate = new JdbcTemplate(source);
+        long claimed = 0;
+        long skipped = 0;
+        long lastId = Long.MIN_VALUE;
+        List<Object[]> page;
+        do {
+            page = shardTemplate.query(BACKFILL_PAGE, (row, number) -> new Object[]{
+                    row.getLong("id"), row.getString("email"), row.getString("phone")}, lastId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            var ids = new Long[page.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = (Long) page.get(i)[0];
+                if (router.shardFor(ids[i]) != shard) {
+                    throw new IllegalStateException(("Customer %d is stored on shard %d but its ID maps to shard %d; "
+                            + "enabling sharding over existing customers is not supported")
+                            .formatted(ids[i], shard, router.shardFor(ids[i])));
+                }
+            }
+            for (int inserted : jdbcTemplate.batchUpdate(CLAIM, page)) {
+                claimed += inserted > 0 ? 1 : 0;
+            }
+            var registered = jdbcTemplate.queryForObject(COUNT_CLAIMED, Long.class, (Object) ids);
+            skipped += ids.length - (registered == null ? 0 : registered);
+            lastId = ids[ids.length - 1];
+        } while (page.size() == pageSize);
+        if (skipped > 0) {
+            log.error("{} customers on shard {} were not claimed: their email or phone number is claimed by another "
+                    + "customer", skipped, shard);
+        }
+        return claimed;
+    }
+
+    /**
+     * @return A CustomerAlreadyExistsException if the violated constraint is the email or phone number constraint
+     * of the directory, or the exception itself for any other violation, e.g. of the customer ID primary key.
+     */
+    private RuntimeException alreadyExists(DataIntegrityViolationException exception, String email, String phone) {
+        var cause = exception.getMostSpecificCause().getMessage();
+        if (cause != null && cause.contains("customer_directory_phone_unique")) {
+            return new CustomerAlreadyExistsException("Phone number %s is already in use".formatted(phone));
+        }
+        if (cause != null && cause.contains("customer_directory_email_unique")) {
+            return new CustomerAlreadyExistsException("Email %s is already in use".formatted(email));
+        }
+        return exception;
+    }
+}
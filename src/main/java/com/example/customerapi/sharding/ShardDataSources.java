@@ -0,0 +1,51 @@
+package com.example.customerapi.sharding;
+
+import org.springframework.boot.jdbc.DataSourceBuilder;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Connection pools of the shard databases, indexed by shard.
+ * Closed with the application context.
+ */
+public class ShardDataSources implements AutoCloseable {
+    private final List<DataSource> dataSources;
+
+    public ShardDataSources(ShardingProperties properties) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("Sharding is enabled but no shards are configured");
+        }
+        this.dataSources = properties.getShards().stream()
+                .<DataSource>map(shard -> DataSourceBuilder.create()
+                        .url(shard.getUrl())
+                        .username(shard.getUsername())
+                        .password(shard.getPassword())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * @param shard The shard index.
+     * @return The connection pool of the shard.
+     */
+    public DataSource get(int shard) {
+        return dataSources.get(shard);
+    }
+
+    /**
+     * @return The connection pools of all shards, indexed by shard.
+     */
+    public List<DataSource> all() {
+        return dataSources;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.customerapi.sharding;
+
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Maps customer IDs to shards and carries the shard selected for the current thread.
+ * The selection is read by {@link ShardRoutingDataSource} when a connection is requested,
+ * so it must be made before the transaction that should run on the shard begins.
+ * With sharding disabled there is a single shard and the selection has no effect.
+ */
+public class ShardRouter {
+    private final ThreadLocal<Integer> current = new ThreadLocal<>();
+    private final int shardCount;
+
+    public ShardRouter(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Specify at least one shard");
+        }
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * @return The number of shards.
+     */
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Selects the shard storing the customer with the given ID.
+     * IDs are mixed before taking the modulus, since their low bits are a per-millisecond sequence.
+     *
+     * @param id The ID of the customer.
+     * @return The shard index, between 0 and shardCount - 1.
+     */
+    public int shardFor(long id) {
+        long hash = id;
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) shardCount);
+    }
+
+    /**
+     * @return The shard selected for the current thread, or null if none is selected.
+     */
+    public Integer currentShard() {
+        return current.get();
+    }
+
+    /**
+     * Runs the action with the given shard selected for the current thread, restoring the previous selection afterwards.
+     *
+     * @param shard  The shard index.
+     * @param action The action to run.
+     * @return The action's result.
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        var previous = current.get();
+        current.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs the action once per shard, sequentially, with that shard selected.
+     *
+     * @param action Receives the index of the selected shard.
+     */
+    public void onEachShard(IntConsumer action) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int selected = shard;
+            onShard(selected, () -> {
+                action.accept(selected);
+                return null;
+            });
+        }
+    }
+}
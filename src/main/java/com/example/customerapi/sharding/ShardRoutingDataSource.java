@@ -0,0 +1,20 @@
+package com.example.customerapi.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * DataSource that hands out connections of the shard selected in {@link ShardRouter} for the current thread.
+ * Falls back to the first shard when no shard is selected, e.g. for schema validation at startup.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private final ShardRouter router;
+
+    public ShardRoutingDataSource(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return router.currentShard();
+    }
+}
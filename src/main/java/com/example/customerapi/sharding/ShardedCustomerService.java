@@ -0,0 +1,199 @@
+package com.example.customerapi.sharding;
+
+import com.example.customerapi.deadline.Deadline;
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.profiling.Profiling;
+import com.example.customerapi.service.CountMode;
+import com.example.customerapi.service.CustomerService;
+import com.example.customerapi.service.id.CustomerIdGenerator;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * CustomerService that spreads customers over several databases by a hash of their ID.
+ * Operations on a single customer run on its shard through the single-database service;
+ * list and count operations run on all shards in parallel and merge the results.
+ * Email and phone uniqueness is enforced by the global {@link CustomerDirectory},
+ * full name uniqueness remains shard-local.
+ */
+public class ShardedCustomerService implements CustomerService, AutoCloseable {
+    private static final String ID = "id";
+
+    private final CustomerService delegate;
+    private final ShardRouter router;
+    private final CustomerDirectory directory;
+    private final CustomerIdGenerator idGenerator;
+    private final ExecutorService executor;
+
+    public ShardedCustomerService(CustomerService delegate, ShardRouter router,
+                                  CustomerDirectory directory, CustomerIdGenerator idGenerator) {
+        this.delegate = delegate;
+        this.router = router;
+        this.directory = directory;
+        this.idGenerator = idGenerator;
+        this.executor = Executors.newFixedThreadPool(router.shardCount());
+    }
+
+    /**
+     * Adds a new customer to the shard selected by its newly assigned ID.
+     * The email and phone number are claimed in the directory first and released if the shard rejects the customer.
+     *
+     * @param customer The customer object to add.
+     * @return The saved customer object.
+     */
+    @Override
+    public Customer add(Customer customer) {
+        if (customer.getId() == null) {
+            customer.setId(idGenerator.nextId());
+        }
+        directory.register(customer);
+        try {
+            return onShardOf(customer.getId(), () -> delegate.add(customer));
+        } catch (RuntimeException exception) {
+            directory.release(customer.getId());
+            throw exception;
+        }
+    }
+
+    /**
+     * Retrieves active customers from all shards, ordered by ID.
+     *
+     * @return A list of active Customer entities.
+     */
+    @Override
+    public List<Customer> findByIsActiveTrue() {
+        return scatter(delegate::findByIsActiveTrue).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Customer::getId))
+                .toList();
+    }
+
+    @Override
+    public Optional<Customer> findByIdAndIsActiveTrue(Long id) {
+        return onShardOf(id, () -> delegate.findByIdAndIsActiveTrue(id));
+    }
+
+    /**
+     * Retrieves the requested fields of active customers from all shards, ordered by ID like findByIsActiveTrue.
+     * The ID is always selected for merging and left out of the rows again unless requested.
+     *
+     * @param fields The customer fields to select.
+     * @return A list of maps from field name to value, one per active customer.
+     */
+    @Override
+    public List<Map<String, Object>> findActiveFields(Set<String> fields) {
+        var withId = new HashSet<>(fields);
+        withId.add(ID);
+        var rows = scatter(() -> delegate.findActiveFields(withId)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(row -> (Long) row.get(ID)));
+        if (fields.contains(ID)) {
+            return rows.toList();
+        }
+        return rows.<Map<String, Object>>map(row -> {
+                    Map<String, Object> requested = new LinkedHashMap<>(row);
+                    requested.remove(ID);
+                    return requested;
+                })
+                .toList();
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findActiveFieldsById(Long id, Set<String> fields) {
+        return onShardOf(id, () -> delegate.findActiveFieldsById(id, fields));
+    }
+
+    /**
+     * Updates a customer on its shard.
+     * A changed phone number is claimed in the directory first and the previous one restored if the shard rejects the update.
+     *
+     * @param customer The customer object to update.
+     * @return The updated customer object.
+     */
+    @Override
+    public Customer update(Customer customer) {
+        var previousPhone = directory.findPhone(customer.getId()).orElse(null);
+        var phoneChanged = !Objects.equals(previousPhone, customer.getPhone());
+        if (phoneChanged) {
+            directory.changePhone(customer.getId(), customer.getPhone());
+        }
+        try {
+            return onShardOf(customer.getId(), () -> delegate.update(customer));
+        } catch (RuntimeException exception) {
+            if (phoneChanged) {
+                directory.changePhone(customer.getId(), previousPhone);
+            }
+            throw exception;
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return onShardOf(id, () -> delegate.existsById(id));
+    }
+
+    /**
+     * Counts active customers on all shards.
+     *
+     * @param mode The counting strategy, applied on every shard.
+     * @return The sum of the shards' counts.
+     */
+    @Override
+    public long countActive(CountMode mode) {
+        return scatter(() -> delegate.countActive(mode)).stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        onShardOf(id, () -> {
+            delegate.deleteById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T onShardOf(Long id, Supplier<T> action) {
+        return router.onShard(router.shardFor(id), action);
+    }
+
+    /**
+     * Runs the action on every shard in parallel, under the deadline of the calling request
+     * and with its stage events tagged with the calling request's endpoint.
+     *
+     * @param action The action to run on each shard.
+     * @return The action's results, indexed by shard.
+     */
+    private <T> List<T> scatter(Supplier<T> action) {
+        var futures = IntStream.range(0, router.shardCount())
+                .mapToObj(shard -> CompletableFuture.supplyAsync(
+                        Profiling.propagate(Deadline.propagate(() -> router.onShard(shard, action))), executor))
+                .toList();
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw exception;
+        }
+    }
+}
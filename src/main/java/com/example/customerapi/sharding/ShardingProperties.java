@@ -0,0 +1,29 @@
+package com.example.customerapi.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of hash-sharded customer storage.
+ * When enabled, customers are spread over the listed databases by a hash of their ID,
+ * and the first database additionally hosts the global email and phone directory.
+ */
+@Data
+@ConfigurationProperties(prefix = "customer.sharding")
+public class ShardingProperties {
+    private boolean enabled;
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Connection settings of one shard database.
+     */
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
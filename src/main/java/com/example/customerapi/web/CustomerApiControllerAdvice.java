@@ -1,10 +1,18 @@
 package com.example.customerapi.web;
 
 
+import com.example.customerapi.deadline.StatementCanceller;
 import com.example.customerapi.exception.CustomerAlreadyExistsException;
 import com.example.customerapi.web.dto.ExceptionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionTimedOutException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -21,6 +29,14 @@ import java.util.stream.Collectors;
  */
 @RestControllerAdvice
 public class CustomerApiControllerAdvice {
+    private final Counter deadlinesExpired;
+    private final Counter queriesCancelled;
+
+    public CustomerApiControllerAdvice(MeterRegistry meterRegistry) {
+        this.deadlinesExpired = deadlineExceeded(meterRegistry, "expired");
+        this.queriesCancelled = deadlineExceeded(meterRegistry, "cancelled");
+    }
+
     /**
      * Handles IllegalArgumentException, CustomerAlreadyExistsException and other RuntimeExceptions.
      * Returns a 400 Bad Request response with an ExceptionResponse object containing the exception message.
@@ -33,6 +49,69 @@ public class CustomerApiControllerAdvice {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(exceptionResponse(exception.getMessage()));
     }
+    /**
+     * Handles TransactionTimedOutException and QueryTimeoutException, thrown when the request deadline passes
+     * before a transaction or statement starts, or while a statement runs and the database cancels it.
+     * Counts the request in customer.requests.deadline.exceeded, tagged "expired" or "cancelled" respectively.
+     * Returns a 504 Gateway Timeout response with an ExceptionResponse object.
+     *
+     * @param exception The exception that was thrown.
+     * @return A ResponseEntity with the ExceptionResponse object and HTTP status 504 Gateway Timeout.
+     */
+    @ExceptionHandler({TransactionTimedOutException.class, QueryTimeoutException.class})
+    public ResponseEntity<ExceptionResponse> handleDeadlineExceeded(RuntimeException exception) {
+        if (exception instanceof QueryTimeoutException) {
+            queriesCancelled.increment();
+        } else {
+            deadlinesExpired.increment();
+        }
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(exceptionResponse("Request deadline exceeded"));
+    }
+    /**
+     * Handles other DataAccessExceptions that report a statement the database cancelled, which JdbcTemplate
+     * does not translate to QueryTimeoutException, in the same way as {@link #handleDeadlineExceeded}.
+     * Any other DataAccessException is rethrown and left to the default error handling.
+     *
+     * @param exception The DataAccessException that was thrown.
+     * @return A ResponseEntity with the ExceptionResponse object and HTTP status 504 Gateway Timeout.
+     * @throws DataAccessException if the exception does not report a cancelled statement.
+     */
+    @ExceptionHandler(DataAccessException.class)
+    public ResponseEntity<ExceptionResponse> handleCancelledStatement(DataAccessException exception) {
+        if (!StatementCanceller.isCancellation(exception)) {
+            throw exception;
+        }
+        queriesCancelled.increment();
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(exceptionResponse("Request deadline exceeded"));
+    }
+    /**
+     * Handles CannotCreateTransactionException, thrown when no database connection could be obtained in time,
+     * e.g. because the connection pool is exhausted.
+     * Returns a 503 Service Unavailable response with an ExceptionResponse object.
+     *
+     * @param exception The CannotCreateTransactionException that was thrown.
+     * @return A ResponseEntity with the ExceptionResponse object and HTTP status 503 Service Unavailable.
+     */
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<ExceptionResponse> handleUnavailable(CannotCreateTransactionException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(exceptionResponse("Database is unavailable, try again later"));
+    }
+    /**
+     * Handles TaskRejectedException, thrown when an asynchronously handled request finds the async request
+     * thread pool and its queue full.
+     * Returns a 503 Service Unavailable response with an ExceptionResponse object.
+     *
+     * @param exception The TaskRejectedException that was thrown.
+     * @return A ResponseEntity with the ExceptionResponse object and HTTP status 503 Service Unavailable.
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ExceptionResponse> handleOverloaded(TaskRejectedException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(exceptionResponse("Server is busy, try again later"));
+    }
     /**
      * Handles MethodArgumentNotValidException, which occurs when method argument validation fails.
      * Returns a 400 Bad Request response with an ExceptionResponse object containing a comma-separated list of validation error messages.
@@ -65,4 +144,11 @@ public class CustomerApiControllerAdvice {
         return new ExceptionResponse(message,
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("hh:mm:ss")));
     }
+
+    private static Counter deadlineExceeded(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("customer.requests.deadline.exceeded")
+                .tag("reason", reason)
+                .description("Requests that exceeded their deadline")
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,152 @@
+package com.example.customerapi.web.coalescing;
+
+import com.example.customerapi.concurrent.SingleFlight;
+import com.example.customerapi.deadline.Deadline;
+import com.example.customerapi.service.CountMode;
+import com.example.customerapi.service.CustomerService;
+import com.example.customerapi.web.dto.CustomerDto;
+import com.example.customerapi.web.mapper.CustomerMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Read-only front of {@link CustomerService} that coalesces concurrent identical reads.
+ * Concurrent requests for the same customer, list, projection or count share one database call,
+ * which keeps a burst of requests for a popular record from stampeding the database.
+ * Results are mapped to DTOs before they are shared, so callers never share a mutable entity;
+ * reads that precede an update go to the service directly.
+ * Writes invalidate the affected in-flight reads once committed, so that a client reading its own write
+ * never joins a read that started before the write and gets the old value.
+ */
+@Component
+public class CustomerReadCoalescer {
+    private static final String ACTIVE_CUSTOMERS = "active";
+
+    private final CustomerService service;
+    private final CustomerMapper mapper;
+    private final SingleFlight<Long, Optional<CustomerDto>> byId;
+    private final SingleFlight<String, List<CustomerDto>> all;
+    private final SingleFlight<FieldsKey, Optional<Map<String, Object>>> fieldsById;
+    private final SingleFlight<Set<String>, List<Map<String, Object>>> allFields;
+    private final SingleFlight<CountMode, Long> counts;
+
+    public CustomerReadCoalescer(CustomerService service,
+                                 CustomerMapper mapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${customer.read-coalescing.timeout}") Duration timeout) {
+        this.service = service;
+        this.mapper = mapper;
+        this.byId = singleFlight(meterRegistry, timeout, "findById");
+        this.all = singleFlight(meterRegistry, timeout, "findAll");
+        this.fieldsById = singleFlight(meterRegistry, timeout, "findFieldsById");
+        this.allFields = singleFlight(meterRegistry, timeout, "findAllFields");
+        this.counts = singleFlight(meterRegistry, timeout, "count");
+    }
+
+    /**
+     * Retrieves an active customer by their ID.
+     *
+     * @param id The ID of the customer.
+     * @return An Optional containing the customer DTO if found, or empty otherwise.
+     */
+    public Optional<CustomerDto> findById(Long id) {
+        return byId.execute(id, () -> service.findByIdAndIsActiveTrue(id).map(mapper::toPayload));
+    }
+
+    /**
+     * Retrieves all active customers.
+     *
+     * @return An unmodifiable list of active customer DTOs.
+     */
+    public List<CustomerDto> findAll() {
+        return all.execute(ACTIVE_CUSTOMERS, () -> service.findByIsActiveTrue()
+                .stream()
+                .map(mapper::toPayload)
+                .toList());
+    }
+
+    /**
+     * Retrieves only the requested fields of an active customer by their ID.
+     * Only calls requesting the same ID and fields are coalesced.
+     *
+     * @param id     The ID of the customer.
+     * @param fields The customer fields to select.
+     * @return An Optional containing the map from field name to value if found, or empty otherwise.
+     */
+    public Optional<Map<String, Object>> findFieldsById(Long id, Set<String> fields) {
+        return fieldsById.execute(new FieldsKey(id, Set.copyOf(fields)),
+                () -> service.findActiveFieldsById(id, fields).map(mapper::toPayload));
+    }
+
+    /**
+     * Retrieves only the requested fields of active customers.
+     *
+     * @param fields The customer fields to select.
+     * @return A list of maps from field name to value, one per active customer.
+     */
+    public List<Map<String, Object>> findAllFields(Set<String> fields) {
+        return allFields.execute(Set.copyOf(fields), () -> service.findActiveFields(fields)
+                .stream()
+                .map(mapper::toPayload)
+                .toList());
+    }
+
+    /**
+     * Counts active customers.
+     *
+     * @param mode The counting strategy.
+     * @return The number of active customers.
+     */
+    public long count(CountMode mode) {
+        return counts.execute(mode, () -> service.countActive(mode));
+    }
+
+    /**
+     * Stops later reads from joining in-flight reads that may predate a committed write of the customer:
+     * reads of that customer, and every list and count read.
+     * Call after the transaction of the write has committed.
+     *
+     * @param id The ID of the created, updated or deleted customer.
+     */
+    public void written(Long id) {
+        byId.invalidate(id);
+        fieldsById.invalidateIf(key -> key.id().equals(id));
+        all.invalidate(ACTIVE_CUSTOMERS);
+        allFields.invalidateIf(fields -> true);
+        counts.invalidateIf(mode -> true);
+    }
+
+    private record FieldsKey(Long id, Set<String> fields) {
+    }
+
+    private static <K, V> SingleFlight<K, V> singleFlight(MeterRegistry meterRegistry, Duration timeout,
+                                                          String operation) {
+        var coalesced = Counter.builder("customer.reads.coalesced")
+                .tag("operation", operation)
+                .description("Reads served by joining an identical in-flight read")
+                .register(meterRegistry);
+        var timeouts = Counter.builder("customer.reads.coalescing.timeouts")
+                .tag("operation", operation)
+                .description("Reads that stopped waiting for an in-flight read and queried the database")
+                .register(meterRegistry);
+        return new SingleFlight<>(() -> maxWait(timeout), coalesced::increment, timeouts::increment);
+    }
+
+    /**
+     * @return The coalescing timeout, shortened to the time remaining until the deadline of the current request.
+     */
+    private static Duration maxWait(Duration timeout) {
+        return Deadline.remaining()
+                .map(remaining -> remaining.isNegative() ? Duration.ZERO : remaining)
+                .filter(remaining -> remaining.compareTo(timeout) < 0)
+                .orElse(timeout);
+    }
+}
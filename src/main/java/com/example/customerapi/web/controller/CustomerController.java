@@ -1,6 +1,11 @@
 package com.example.customerapi.web.controller;
 
+import com.example.customerapi.deadline.Deadline;
+import com.example.customerapi.profiling.Profiling;
+import com.example.customerapi.service.CountMode;
 import com.example.customerapi.service.CustomerService;
+import com.example.customerapi.web.coalescing.CustomerReadCoalescer;
+import com.example.customerapi.web.dto.CustomerCountDto;
 import com.example.customerapi.web.dto.CustomerCreationDto;
 import com.example.customerapi.web.dto.CustomerDto;
 import com.example.customerapi.web.dto.CustomerUpdateDto;
@@ -12,9 +17,15 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 /**
  * REST controller for Customer-related operations.
  * Handles HTTP requests for creating, retrieving, updating, and deleting customers.
+ * Plain reads go through CustomerReadCoalescer so that concurrent identical requests share one database call;
+ * writes tell it which customer changed once their transaction has committed.
+ * The list of active customers is read asynchronously, so that its statements are cancelled if the client disconnects.
  */
 @RestController
 @RequestMapping("/api/customers")
@@ -22,6 +33,7 @@ import java.util.List;
 public class CustomerController {
     private final CustomerService service;
     private final CustomerMapper mapper;
+    private final CustomerReadCoalescer reader;
     /**
      * Creates a new customer.
      * @param creationDto The DTO containing customer creation data.
@@ -30,18 +42,28 @@ public class CustomerController {
     @PostMapping
     public ResponseEntity<CustomerDto> add(@RequestBody @Valid CustomerCreationDto creationDto) {
         var newCustomer = service.add(mapper.toEntity(creationDto));
+        reader.written(newCustomer.getId());
         return new ResponseEntity<>(mapper.toPayload(newCustomer), HttpStatus.CREATED);
     }
     /**
      * Retrieves a list of active customers.
-     * @return A list of active customer DTOs.
+     * Runs on an async worker thread under the request's deadline, releasing the request thread meanwhile.
+     * @return A Callable producing the list of active customer DTOs.
      */
     @GetMapping
-    public ResponseEntity<List<CustomerDto>> findAll() {
-        return ResponseEntity.ok(service.findByIsActiveTrue()
-                .stream()
-                .map(mapper::toPayload)
-                .toList());
+    public Callable<ResponseEntity<List<CustomerDto>>> findAll() {
+        var findAll = Profiling.propagate(Deadline.propagate(reader::findAll));
+        return () -> ResponseEntity.ok(findAll.get());
+    }
+    /**
+     * Retrieves only the requested fields of active customers.
+     * The projection is applied in SQL, so unrequested columns are never read.
+     * @param fields Comma-separated customer fields, e.g. "id,email".
+     * @return A list of active customers containing only the requested fields.
+     */
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> findAllFields(@RequestParam Set<String> fields) {
+        return ResponseEntity.ok(reader.findAllFields(fields));
     }
     /**
      * Retrieves a customer by their ID.
@@ -50,7 +72,39 @@ public class CustomerController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<CustomerDto> findById (@PathVariable Long id){
-        return ResponseEntity.of(service.findByIdAndIsActiveTrue(id).map(mapper::toPayload));
+        return ResponseEntity.of(reader.findById(id));
+    }
+    /**
+     * Retrieves only the requested fields of a customer by their ID.
+     * @param id The ID of the customer.
+     * @param fields Comma-separated customer fields, e.g. "id,email".
+     * @return The customer containing only the requested fields if found, or 404 Not Found.
+     */
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> findFieldsById(@PathVariable Long id, @RequestParam Set<String> fields) {
+        return ResponseEntity.of(reader.findFieldsById(id, fields));
+    }
+    /**
+     * Checks whether an active customer exists without loading it.
+     * @param id The ID of the customer.
+     * @return 200 OK with an empty body if the customer exists, or 404 Not Found.
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> exists(@PathVariable Long id) {
+        return service.existsById(id)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
+    }
+    /**
+     * Counts active customers.
+     * @param mode "exact" for an index-backed count, or "approximate" for the query planner's estimate.
+     * @return The number of active customers and whether it is approximate.
+     */
+    @GetMapping("/count")
+    public ResponseEntity<CustomerCountDto> count(@RequestParam(defaultValue = "exact") String mode) {
+        var countMode = CountMode.of(mode);
+        return ResponseEntity.ok(new CustomerCountDto(reader.count(countMode),
+                countMode == CountMode.APPROXIMATE));
     }
     /**
      * Updates an existing customer.
@@ -60,10 +114,11 @@ public class CustomerController {
      */
     @PatchMapping ("/{id}")
     public ResponseEntity<CustomerDto> update(@RequestBody @Valid CustomerUpdateDto updateDto, @PathVariable Long id) {
-        return ResponseEntity.of(service.findByIdAndIsActiveTrue(id)
+        var updated = service.findByIdAndIsActiveTrue(id)
                 .map(customer -> mapper.update(updateDto, customer))
-                .map(service::update)
-                .map(mapper::toPayload));
+                .map(service::update);
+        reader.written(id);
+        return ResponseEntity.of(updated.map(mapper::toPayload));
     }
     /**
      * Deletes a customer (soft delete).
@@ -73,6 +128,7 @@ public class CustomerController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id){
         service.deleteById(id);
+        reader.written(id);
         return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,14 @@
+package com.example.customerapi.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+/**
+ * Data Transfer Object (DTO) for representing the number of active customers.
+ * Contains the count and whether it is a planner estimate rather than an exact value.
+ */
+@Data
+@AllArgsConstructor
+public class CustomerCountDto {
+    private long count;
+    private boolean approximate;
+}
@@ -1,12 +1,17 @@
 package com.example.customerapi.web.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Data;
 /**
  * Data Transfer Object (DTO) for representing a customer.
  * Contains the customer's ID, email, full name, and phone number.
+ * The ID is serialized as a string: generated IDs exceed 2^53,
+ * which clients that parse JSON numbers as doubles, such as JavaScript, cannot represent exactly.
  */
 @Data
 public class CustomerDto {
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     private String email;
     private String fullName;
@@ -0,0 +1,16 @@
+package com.example.customerapi.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+/**
+ * Data Transfer Object (DTO) for representing a Java Flight Recorder recording.
+ * Contains the recording's ID, name, state and the time it started.
+ */
+@Data
+@AllArgsConstructor
+public class RecordingDto {
+    private long id;
+    private String name;
+    private String state;
+    private String startTime;
+}
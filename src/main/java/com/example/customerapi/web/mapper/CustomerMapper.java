@@ -5,15 +5,22 @@ import com.example.customerapi.web.dto.CustomerCreationDto;
 import com.example.customerapi.web.dto.CustomerDto;
 import com.example.customerapi.web.dto.CustomerUpdateDto;
 import org.mapstruct.BeanMapping;
+import org.mapstruct.DecoratedWith;
 import org.mapstruct.Mapper;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.NullValuePropertyMappingStrategy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 /**
  * Mapper interface for Customer entities and DTOs.
  * Defines methods for mapping between Customer, CustomerCreationDto, CustomerDto, and CustomerUpdateDto.
  * Uses MapStruct for efficient and type-safe mapping.
+ * Decorated with CustomerMapperDecorator to record mapping time in flight recordings
+ * and to capture update diffs for the audit trail.
  */
 @Mapper(componentModel = "spring")
+@DecoratedWith(CustomerMapperDecorator.class)
 public interface CustomerMapper {
     /**
      * Maps a CustomerCreationDto to a Customer entity.
@@ -31,6 +38,21 @@ public interface CustomerMapper {
      * @return The mapped CustomerDto.
      */
     CustomerDto toPayload(Customer customer);
+    /**
+     * Maps the selected fields of a customer to a payload, serializing the ID as a string like {@link CustomerDto}.
+     *
+     * @param fields The map from field name to value, as selected from the database.
+     * @return The payload, or the map itself if it has no ID.
+     */
+    default Map<String, Object> toPayload(Map<String, Object> fields) {
+        var id = fields.get("id");
+        if (id == null) {
+            return fields;
+        }
+        var payload = new LinkedHashMap<>(fields);
+        payload.put("id", id.toString());
+        return payload;
+    }
     /**
      * Updates a Customer entity with data from a CustomerUpdateDto.
      * Ignores null values in the DTO.
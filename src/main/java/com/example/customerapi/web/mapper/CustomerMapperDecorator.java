@@ -0,0 +1,39 @@
+package com.example.customerapi.web.mapper;
+
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.profiling.Profiling;
+import com.example.customerapi.service.audit.AuditTrail;
+import com.example.customerapi.web.dto.CustomerCreationDto;
+import com.example.customerapi.web.dto.CustomerDto;
+import com.example.customerapi.web.dto.CustomerUpdateDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+/**
+ * Decorator of the generated CustomerMapper that records every mapping as a stage event
+ * and stages the field changes of an update for the audit trail.
+ */
+public abstract class CustomerMapperDecorator implements CustomerMapper {
+    @Autowired
+    @Qualifier("delegate")
+    private CustomerMapper delegate;
+    @Autowired
+    private AuditTrail auditTrail;
+
+    @Override
+    public Customer toEntity(CustomerCreationDto creationDto) {
+        return Profiling.record(Profiling.MAPPING, () -> delegate.toEntity(creationDto));
+    }
+
+    @Override
+    public CustomerDto toPayload(Customer customer) {
+        return Profiling.record(Profiling.MAPPING, () -> delegate.toPayload(customer));
+    }
+
+    @Override
+    public Customer update(CustomerUpdateDto updateDto, Customer customer) {
+        var before = customer.copy();
+        var updated = Profiling.record(Profiling.MAPPING, () -> delegate.update(updateDto, customer));
+        auditTrail.stage(before, updated);
+        return updated;
+    }
+}
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS customer_active_id_idx ON customer (id) WHERE is_active;
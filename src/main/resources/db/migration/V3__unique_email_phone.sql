@@ -0,0 +1,16 @@
+-- Adding the constraints fails on duplicate data; report the duplicates first so they can be resolved by hand.
+-- Customers without an email or phone number are not duplicates, since unique constraints allow several NULLs:
+-- SELECT email, array_agg(id) FROM customer WHERE email IS NOT NULL GROUP BY email HAVING COUNT(*) > 1;
+-- SELECT phone, array_agg(id) FROM customer WHERE phone IS NOT NULL GROUP BY phone HAVING COUNT(*) > 1;
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM customer WHERE email IS NOT NULL GROUP BY email HAVING COUNT(*) > 1) THEN
+        RAISE EXCEPTION 'customer contains duplicate emails, resolve them before adding customer_email_unique';
+    END IF;
+    IF EXISTS (SELECT 1 FROM customer WHERE phone IS NOT NULL GROUP BY phone HAVING COUNT(*) > 1) THEN
+        RAISE EXCEPTION 'customer contains duplicate phone numbers, resolve them before adding customer_phone_unique';
+    END IF;
+END $$;
+
+ALTER TABLE customer ADD CONSTRAINT customer_email_unique UNIQUE (email);
+ALTER TABLE customer ADD CONSTRAINT customer_phone_unique UNIQUE (phone);
@@ -0,0 +1,16 @@
+ALTER TABLE customer ADD COLUMN IF NOT EXISTS deleted BIGINT;
+
+UPDATE customer SET deleted = COALESCE(updated, created) WHERE NOT is_active AND deleted IS NULL;
+
+CREATE INDEX IF NOT EXISTS customer_deleted_idx ON customer (deleted) WHERE NOT is_active;
+
+CREATE TABLE IF NOT EXISTS customer_archive (
+    id BIGINT PRIMARY KEY,
+    created BIGINT NOT NULL,
+    updated BIGINT,
+    deleted BIGINT,
+    archived BIGINT NOT NULL DEFAULT EXTRACT(EPOCH FROM NOW()),
+    email VARCHAR(255),
+    full_name VARCHAR(255),
+    phone VARCHAR(255)
+    );
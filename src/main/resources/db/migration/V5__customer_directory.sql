@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS customer_directory (
+    customer_id BIGINT PRIMARY KEY,
+    email VARCHAR(255) CONSTRAINT customer_directory_email_unique UNIQUE,
+    phone VARCHAR(255) CONSTRAINT customer_directory_phone_unique UNIQUE
+    );
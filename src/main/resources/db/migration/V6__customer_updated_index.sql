@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS customer_updated_idx ON customer (updated) WHERE updated IS NOT NULL;
@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS customer_audit (
+    id BIGSERIAL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    action VARCHAR(16) NOT NULL,
+    changes JSONB NOT NULL,
+    occurred BIGINT NOT NULL
+    );
+
+CREATE INDEX IF NOT EXISTS customer_audit_customer_idx ON customer_audit (customer_id, occurred);
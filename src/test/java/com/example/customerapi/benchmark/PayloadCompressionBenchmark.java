@@ -0,0 +1,122 @@
+package com.example.customerapi.benchmark;
+
+import com.example.customerapi.web.dto.CustomerDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Measures the trade-off between bytes on the wire, CPU time and latency for customer list payloads.
+ * Compares JSON and CBOR encodings, each uncompressed and deflated at several levels,
+ * for a page-sized list and an export-sized list.
+ * <p>
+ * Not a unit test: run it manually after {@code mvn test-compile}, e.g.
+ * {@code java -cp target/classes:target/test-classes:<dependency classpath>
+ * com.example.customerapi.benchmark.PayloadCompressionBenchmark}.
+ */
+public class PayloadCompressionBenchmark {
+    private static final int[] LIST_SIZES = {100, 10_000};
+    private static final int[] LEVELS = {Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION};
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int MEASURED_ITERATIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+        var json = new ObjectMapper();
+        var cbor = new ObjectMapper(new CBORFactory());
+
+        System.out.printf("%-8s %-6s %-8s %12s %8s %14s %14s%n",
+                "items", "format", "level", "bytes", "ratio", "encode us", "decode us");
+        for (int size : LIST_SIZES) {
+            var customers = customers(size);
+            report(size, "json", json, customers);
+            report(size, "cbor", cbor, customers);
+        }
+    }
+
+    private static void report(int size, String format, ObjectMapper mapper, List<CustomerDto> customers)
+            throws IOException, DataFormatException {
+        var raw = mapper.writeValueAsBytes(customers);
+        var serializeNanos = time(() -> mapper.writeValueAsBytes(customers));
+        System.out.printf("%-8d %-6s %-8s %12d %8.2f %14.1f %14s%n",
+                size, format, "none", raw.length, 1.0, serializeNanos / 1_000.0, "-");
+        for (int level : LEVELS) {
+            var compressed = deflate(raw, level);
+            var encodeNanos = time(() -> deflate(mapper.writeValueAsBytes(customers), level));
+            var decodeNanos = time(() -> inflate(compressed, raw.length));
+            System.out.printf("%-8d %-6s %-8s %12d %8.2f %14.1f %14.1f%n",
+                    size, format, level == Deflater.DEFAULT_COMPRESSION ? "default" : String.valueOf(level),
+                    compressed.length, (double) raw.length / compressed.length,
+                    encodeNanos / 1_000.0, decodeNanos / 1_000.0);
+        }
+    }
+
+    /**
+     * Returns the mean wall-clock time of the task in nanoseconds after a warm-up phase.
+     */
+    private static double time(Task task) throws IOException, DataFormatException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            task.run();
+        }
+        return (double) (System.nanoTime() - start) / MEASURED_ITERATIONS;
+    }
+
+    private static byte[] deflate(byte[] input, int level) {
+        var deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            var output = new ByteArrayOutputStream(input.length / 4);
+            var buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int originalLength) throws DataFormatException {
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            var output = new byte[originalLength];
+            int offset = 0;
+            while (!inflater.finished() && offset < originalLength) {
+                offset += inflater.inflate(output, offset, originalLength - offset);
+            }
+            return output;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static List<CustomerDto> customers(int size) {
+        var customers = new ArrayList<CustomerDto>(size);
+        for (int i = 1; i <= size; i++) {
+            var customer = new CustomerDto();
+            customer.setId((long) i);
+            customer.setEmail("user%d@example.com".formatted(i));
+            customer.setFullName("User Number %d".formatted(i));
+            customer.setPhone("+38%09d".formatted(i));
+            customers.add(customer);
+        }
+        return customers;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        Object run() throws IOException, DataFormatException;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.customerapi.budget;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * DataSource wrapper that counts the SQL statements executed on each thread.
+ * Every execute call on a statement counts as one statement, so a JDBC batch counts once per round trip.
+ * Counts are kept per thread, so that background work such as the audit writer
+ * does not leak into the count of the request being measured.
+ */
+public class QueryCounter extends DelegatingDataSource {
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    public QueryCounter(DataSource target) {
+        super(target);
+    }
+
+    /**
+     * @return The number of statements executed on the current thread since the last reset.
+     */
+    public static long count() {
+        return COUNT.get()[0];
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingConnection(super.getConnection(username, password));
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return proxy(Connection.class, connection, (method, result) -> switch (method.getName()) {
+            case "createStatement" -> proxy(Statement.class, result, QueryCounter::countExecutions);
+            case "prepareStatement" -> proxy(PreparedStatement.class, result, QueryCounter::countExecutions);
+            case "prepareCall" -> proxy(CallableStatement.class, result, QueryCounter::countExecutions);
+            default -> result;
+        });
+    }
+
+    private static Object countExecutions(Method method, Object result) {
+        if (EXECUTE_METHODS.contains(method.getName())) {
+            COUNT.get()[0]++;
+        }
+        return result;
+    }
+
+    /**
+     * Wraps the target in a proxy of the given interface that passes every call through
+     * and lets the decorator replace the result.
+     */
+    private static <T> T proxy(Class<T> type, Object target, ResultDecorator decorator) {
+        InvocationHandler handler = (proxy, method, arguments) -> {
+            if (method.getName().equals("unwrap") && ((Class<?>) arguments[0]).isInstance(proxy)) {
+                return proxy;
+            }
+            try {
+                return decorator.decorate(method, method.invoke(target, arguments));
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(QueryCounter.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    @FunctionalInterface
+    private interface ResultDecorator {
+        Object decorate(Method method, Object result);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.customerapi.budget;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application DataSource in a {@link QueryCounter},
+ * and runs asynchronously handled requests on the calling thread so that they are measured on the test thread.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class QueryCountingConfig {
+
+    @Bean
+    public static BeanPostProcessor queryCountingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof QueryCounter)
+                        ? new QueryCounter(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    /**
+     * Replaces the executor that Spring MVC runs the Callables of async requests on.
+     *
+     * @return A post-processor that swaps the async request executor for one running every task on the calling thread.
+     */
+    @Bean
+    public static BeanPostProcessor callingThreadAsyncPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return beanName.equals("asyncRequestExecutor") ? new TaskExecutorAdapter(Runnable::run) : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.customerapi.budget;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * SQL statements executed and heap bytes allocated by the current thread while running an action.
+ *
+ * @param queries        The number of statements counted by {@link QueryCounter}.
+ * @param allocatedBytes The bytes allocated by the current thread, as reported by the JVM.
+ */
+public record Usage(long queries, long allocatedBytes) {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Runs the action on the current thread and measures it.
+     *
+     * @param action The action to measure.
+     * @return The action's usage.
+     */
+    public static Usage of(Action action) throws Exception {
+        QueryCounter.reset();
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        action.run();
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new Usage(QueryCounter.count(), allocated);
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.customerapi.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    private final AtomicInteger coalesced = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+
+    @Test
+    void concurrentCallsForSameKeyShareOneExecution() throws Exception {
+        var singleFlight = singleFlight(Duration.ofSeconds(5));
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            var results = new ArrayList<Future<String>>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "customer";
+                })));
+            }
+            while (coalesced.get() < CALLERS - 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            for (var result : results) {
+                assertEquals("customer", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(CALLERS - 1, coalesced.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void sequentialCallsAreNotCached() {
+        var singleFlight = singleFlight(Duration.ofSeconds(5));
+        var loads = new AtomicInteger();
+
+        singleFlight.execute(1L, () -> "customer" + loads.incrementAndGet());
+        var second = singleFlight.execute(1L, () -> "customer" + loads.incrementAndGet());
+
+        assertEquals("customer2", second);
+        assertEquals(0, coalesced.get());
+    }
+
+    @Test
+    void waitingCallerRunsLoaderAfterTimeout() throws Exception {
+        var singleFlight = singleFlight(Duration.ofMillis(50));
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> singleFlight.execute(1L, () -> {
+                started.countDown();
+                await(release);
+                return "slow";
+            }));
+            await(started);
+
+            var result = singleFlight.execute(1L, () -> "fast");
+
+            assertEquals("fast", result);
+            assertEquals(1, timeouts.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void loaderExceptionIsPropagated() {
+        var singleFlight = singleFlight(Duration.ofSeconds(5));
+
+        assertThrows(IllegalArgumentException.class, () -> singleFlight.execute(1L, () -> {
+            throw new IllegalArgumentException("Unknown field password");
+        }));
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void oneWaitingCallerTakesOverWhenInFlightCallFails() throws Exception {
+        var singleFlight = singleFlight(Duration.ofSeconds(5));
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            var leader = executor.submit(() -> singleFlight.execute(1L, () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("Leader deadline exceeded");
+            }));
+            await(started);
+            var joiners = new ArrayList<Future<String>>();
+            for (int i = 0; i < 2; i++) {
+                joiners.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                    loads.incrementAndGet();
+                    while (coalesced.get() < 3) {
+                        Thread.onSpinWait();
+                    }
+                    return "own";
+                })));
+            }
+            while (coalesced.get() < 2) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (var joiner : joiners) {
+                assertEquals("own", joiner.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            var failure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+            assertEquals(0, singleFlight.inFlight());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitingCallerGivesUpAtItsOwnMaxWait() throws Exception {
+        var maxWait = new AtomicReference<>(Duration.ofSeconds(5));
+        var singleFlight = new SingleFlight<Long, String>(maxWait::get, coalesced::incrementAndGet,
+                timeouts::incrementAndGet);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> singleFlight.execute(1L, () -> {
+                started.countDown();
+                await(release);
+                return "slow";
+            }));
+            await(started);
+            maxWait.set(Duration.ofMillis(50));
+            long start = System.nanoTime();
+
+            var result = singleFlight.execute(1L, () -> "fast");
+
+            assertEquals("fast", result);
+            assertEquals(1, timeouts.get());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void invalidatedCallIsNotJoined() throws Exception {
+        var singleFlight = singleFlight(Duration.ofSeconds(5));
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            var stale = executor.submit(() -> singleFlight.execute(1L, () -> {
+                started.countDown();
+                await(release);
+                return "before write";
+            }));
+            await(started);
+            singleFlight.invalidate(1L);
+
+            var result = singleFlight.execute(1L, () -> "after write");
+
+            assertEquals("after write", result);
+            assertEquals(0, coalesced.get());
+            release.countDown();
+            assertEquals("before write", stale.get(5, TimeUnit.SECONDS));
+            assertEquals(0, singleFlight.inFlight());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private SingleFlight<Long, String> singleFlight(Duration timeout) {
+        return new SingleFlight<>(() -> timeout, coalesced::incrementAndGet, timeouts::incrementAndGet);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.customerapi.fixture;
+
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.repository.CustomerRepository;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Customers the in-memory tests start from, the same as the SQL scripts the database tests run,
+ * saved through the repository because the in-memory profile has no database to run the scripts against.
+ */
+public final class CustomerFixtures {
+    private static final String[][] USERS = {
+            {"user1@example.com", "User One", "+123456789"},
+            {"user2@example.com", "User Two", "+987654321"},
+            {"user3@example.com", "User Three", "+1122334455"},
+            {"user4@example.com", "User Four", "+9988776655"},
+            {"user5@example.com", "User Five", "+5544332211"},
+            {"user6@example.com", "User Six", "+123443211"},
+            {"user7@example.com", "User Seven", "+998877665544"},
+            {"user8@example.com", "User Eight", "+112233445566"},
+            {"user9@example.com", "User Nine", "+4433221100"},
+            {"user10@example.com", "User Ten", "+998877665511"}
+    };
+
+    private CustomerFixtures() {
+    }
+
+    /**
+     * Saves ten active customers with IDs 1 to 10.
+     */
+    public static void users(CustomerRepository repository) {
+        for (long id = 1; id <= USERS.length; id++) {
+            repository.saveAndFlush(user(id, true, null));
+        }
+    }
+
+    /**
+     * Saves ten customers with IDs 1 to 10, of which 1, 3 and 10 are inactive.
+     */
+    public static void deletedUsers(CustomerRepository repository) {
+        var inactive = Set.of(1L, 3L, 10L);
+        for (long id = 1; id <= USERS.length; id++) {
+            repository.saveAndFlush(user(id, !inactive.contains(id), null));
+        }
+    }
+
+    /**
+     * Saves a customer deleted long ago (ID 1), an active one (ID 2) and one deleted just now (ID 3).
+     */
+    public static void archivableUsers(CustomerRepository repository) {
+        repository.saveAndFlush(user(1, false, 1L));
+        repository.saveAndFlush(user(2, true, null));
+        repository.saveAndFlush(user(3, false, Instant.now().getEpochSecond()));
+    }
+
+    private static Customer user(long id, boolean active, Long deleted) {
+        var user = USERS[(int) id - 1];
+        var customer = new Customer();
+        customer.setId(id);
+        customer.setEmail(user[0]);
+        customer.setFullName(user[1]);
+        customer.setPhone(user[2]);
+        customer.setIsActive(active);
+        customer.setDeleted(deleted);
+        return customer;
+    }
+}
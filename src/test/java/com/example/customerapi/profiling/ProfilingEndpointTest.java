@@ -0,0 +1,121 @@
+package com.example.customerapi.profiling;
+
+import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.testcontainer.TestContainersConfig;
+import com.example.customerapi.web.dto.CustomerCreationDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestContainersConfig.class)
+@AutoConfigureMockMvc
+public class ProfilingEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private CustomerRepository repository;
+    @LocalManagementPort
+    private int managementPort;
+    @LocalServerPort
+    private int serverPort;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @AfterEach
+    public void stopRecording() {
+        restTemplate.delete(endpoint(""));
+        repository.deleteAll();
+    }
+
+    @Test
+    void shouldStartRecording() {
+        var result = restTemplate.postForEntity(endpoint(""), Map.of("duration", "PT1M"), Map.class);
+
+        assertEquals(HttpStatus.CREATED, result.getStatusCode());
+        assertEquals("RUNNING", result.getBody().get("state"));
+    }
+
+    @Test
+    void shouldStartRecordingIfOneIsRunning() {
+        restTemplate.postForEntity(endpoint(""), Map.of("duration", "PT1M"), Map.class);
+
+        var result = restTemplate.postForEntity(endpoint(""), Map.of("duration", "PT1M"), Map.class);
+
+        assertEquals(HttpStatus.CONFLICT, result.getStatusCode());
+    }
+
+    @Test
+    void shouldStartRecordingWithoutDuration() {
+        var result = restTemplate.postForEntity(endpoint(""), Map.of(), Map.class);
+
+        assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+    }
+
+    @Test
+    void shouldNotServeRecordingOnApiPort() {
+        var result = restTemplate.getForEntity("http://localhost:%d/actuator/profiling".formatted(serverPort),
+                String.class);
+
+        assertEquals(HttpStatus.NOT_FOUND, result.getStatusCode());
+    }
+
+    @Test
+    void shouldRecordStageEventsWithoutEnvironment(@TempDir Path directory) throws Exception {
+        restTemplate.postForEntity(endpoint(""), Map.of("duration", "PT1M"), Map.class);
+        var customer = new CustomerCreationDto("Oleg Proms", "oleg@gmail.com", "+38009822322");
+        mockMvc.perform(post("/api/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(customer)))
+                .andExpect(status().isCreated());
+
+        var stopped = restTemplate.exchange(endpoint(""), HttpMethod.DELETE, null, Map.class);
+        assertEquals("STOPPED", stopped.getBody().get("state"));
+        var file = restTemplate.getForEntity(endpoint("/jfr"), byte[].class);
+        assertEquals(HttpStatus.OK, file.getStatusCode());
+
+        var recording = Files.write(directory.resolve("recording.jfr"), file.getBody());
+        var events = RecordingFile.readAllEvents(recording);
+        var stages = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.example.customerapi.Stage"))
+                .toList();
+        assertThat(stages).extracting(event -> event.getString("stage"))
+                .contains(Profiling.VALIDATION, Profiling.UNIQUENESS_FULL_NAME, Profiling.COMMIT);
+        assertThat(stages).extracting(event -> event.getString("endpoint"))
+                .containsOnly("POST /api/customers");
+        assertThat(events).extracting(RecordedEvent::getEventType).extracting(type -> type.getName())
+                .doesNotContain("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty");
+    }
+
+    private String endpoint(String path) {
+        return "http://localhost:%d/actuator/profiling%s".formatted(managementPort, path);
+    }
+}
@@ -3,11 +3,16 @@ package com.example.customerapi.service;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 
+import com.example.customerapi.exception.CustomerAlreadyExistsException;
 import com.example.customerapi.model.Customer;
 import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.service.archive.CustomerArchiver;
+import com.example.customerapi.service.uniqueness.UniquenessFilter;
 import com.example.customerapi.testcontainer.TestContainersConfig;
 import com.example.customerapi.web.dto.CustomerUpdateDto;
 import com.example.customerapi.web.mapper.CustomerMapper;
@@ -15,11 +20,15 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.List;
+
 @Testcontainers
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ContextConfiguration(classes = TestContainersConfig.class)
@@ -32,11 +41,18 @@ public class CustomerServiceTest {
     private CustomerService service;
     @Autowired
     private  CustomerMapper mapper;
+    @Autowired
+    private UniquenessFilter uniquenessFilter;
+    @Autowired
+    private CustomerArchiver archiver;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
 
     @AfterEach
     void cleanAll() {
         repository.deleteAll();
+        jdbcTemplate.update("DELETE FROM customer_archive");
     }
 
     @Test
@@ -69,6 +85,13 @@ public class CustomerServiceTest {
         assertFalse(customer);
     }
     @Test
+    @Sql("/deleted-users-create.sql")
+    void existsByIdIfDeleted(){
+        var id = 1L;
+        var customer = service.existsById(id);
+        assertFalse(customer);
+    }
+    @Test
     @Sql("/users-create.sql")
     void deleteById(){
         var id = 9L;
@@ -76,6 +99,23 @@ public class CustomerServiceTest {
         assertFalse(repository.findById(id).orElseThrow().getIsActive());
     }
 
+    @Test
+    @Sql("/users-create.sql")
+    void deleteByIdRecordsDeletionTime(){
+        var id = 9L;
+        service.deleteById(id);
+        assertThat(repository.findById(id).orElseThrow().getDeleted()).isNotNull();
+    }
+    @Test
+    @Sql("/archivable-users-create.sql")
+    void archiveMovesOnlyExpiredDeletedCustomers(){
+        var archived = archiver.archive();
+        assertEquals(1L, archived);
+        assertEquals(List.of(1L), jdbcTemplate.queryForList("SELECT id FROM customer_archive", Long.class));
+        assertThat(repository.findById(1L)).isEmpty();
+        assertThat(repository.findById(2L)).isPresent();
+        assertThat(repository.findById(3L)).isPresent();
+    }
     @Test
     @Sql("/users-create.sql")
     void findAll(){
@@ -97,6 +137,48 @@ public class CustomerServiceTest {
         assertEquals(customerSaved, repository.findById(customer.getId()).orElseThrow());
     }
     @Test
+    void addRecordsEmailAndPhoneInUniquenessFilter(){
+        var customer = getCustomer();
+        service.add(customer);
+        assertTrue(uniquenessFilter.mightContainEmail(customer.getEmail()));
+        assertTrue(uniquenessFilter.mightContainPhone(customer.getPhone()));
+    }
+    @Test
+    void addIfEmailIsInUse(){
+        service.add(getCustomer());
+        var duplicate = getCustomer();
+        duplicate.setFullName("Olga Proms");
+        duplicate.setPhone("+38009822323");
+        assertThrows(CustomerAlreadyExistsException.class, () -> service.add(duplicate));
+    }
+    /**
+     * Customers saved through the repository bypass the uniqueness filter, so the service skips the lookups
+     * and the database constraints have to report the duplicates.
+     * Runs outside the test transaction, because PostgreSQL aborts a transaction once a constraint is violated.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void addIfEmailIsInUseButMissingFromUniquenessFilter(){
+        var existing = getCustomer("Filter Miss", "filter-miss@gmail.com", "+38009800001");
+        existing.setId(1001L);
+        repository.save(existing);
+        var duplicate = getCustomer("Olga Proms", "filter-miss@gmail.com", "+38009800002");
+        assumeFalse(uniquenessFilter.mightContainEmail(duplicate.getEmail()), "false positive of the filter");
+        var exception = assertThrows(CustomerAlreadyExistsException.class, () -> service.add(duplicate));
+        assertEquals("Email filter-miss@gmail.com is already in use", exception.getMessage());
+    }
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void addIfPhoneIsInUseButMissingFromUniquenessFilter(){
+        var existing = getCustomer("Filter Miss", "filter-miss@gmail.com", "+38009800001");
+        existing.setId(1001L);
+        repository.save(existing);
+        var duplicate = getCustomer("Olga Proms", "olga@gmail.com", "+38009800001");
+        assumeFalse(uniquenessFilter.mightContainPhone(duplicate.getPhone()), "false positive of the filter");
+        var exception = assertThrows(CustomerAlreadyExistsException.class, () -> service.add(duplicate));
+        assertEquals("Phone number +38009800001 is already in use", exception.getMessage());
+    }
+    @Test
     @Sql("/users-create.sql")
     void update(){
         var id = 1L;
@@ -119,6 +201,14 @@ public class CustomerServiceTest {
         return customer;
     }
 
+    private Customer getCustomer(String fullName, String email, String phone) {
+        Customer customer = new Customer();
+        customer.setFullName(fullName);
+        customer.setEmail(email);
+        customer.setPhone(phone);
+        return customer;
+    }
+
     private CustomerUpdateDto getCustomerUpdateDto() {
         return new CustomerUpdateDto("Anna Guy",
                 "+38009723328");
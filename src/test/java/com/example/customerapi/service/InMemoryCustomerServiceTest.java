@@ -0,0 +1,297 @@
+package com.example.customerapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import com.example.customerapi.exception.CustomerAlreadyExistsException;
+import com.example.customerapi.fixture.CustomerFixtures;
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.repository.memory.InMemoryCustomerRepository;
+import com.example.customerapi.repository.memory.InMemoryTransactionManager;
+import com.example.customerapi.service.uniqueness.UniquenessFilter;
+import com.example.customerapi.web.dto.CustomerUpdateDto;
+import com.example.customerapi.web.mapper.CustomerMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+/**
+ * Runs the service tests against the in-memory repository, seeding customers through the repository
+ * instead of SQL scripts, plus the tests specific to it. Archiving is off in this profile.
+ */
+@SpringBootTest
+@ActiveProfiles("in-memory")
+@Transactional
+public class InMemoryCustomerServiceTest {
+    @Autowired
+    private CustomerRepository repository;
+    @Autowired
+    private CustomerService service;
+    @Autowired
+    private CustomerMapper mapper;
+    @Autowired
+    private UniquenessFilter uniquenessFilter;
+
+    @AfterEach
+    void cleanAll() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void findById(){
+        CustomerFixtures.users(repository);
+        var id = 1L;
+        var customer = service.findByIdAndIsActiveTrue(id);
+        assertThat(customer).isPresent();
+        assertThat(customer.get()).usingRecursiveComparison().isEqualTo(repository.findById(id).orElseThrow());
+    }
+    @Test
+    void findByIfNoExist(){
+        CustomerFixtures.users(repository);
+        var id = 11L;
+        var customer = service.findByIdAndIsActiveTrue(id);
+        assertThat(customer).isEmpty();
+    }
+    @Test
+    void existsById(){
+        CustomerFixtures.users(repository);
+        var id = 1L;
+        var customer = service.existsById(id);
+        assertTrue(customer);
+    }
+    @Test
+    void existsByIdIfNoExist(){
+        CustomerFixtures.users(repository);
+        var id = 11L;
+        var customer = service.existsById(id);
+        assertFalse(customer);
+    }
+    @Test
+    void existsByIdIfDeleted(){
+        CustomerFixtures.deletedUsers(repository);
+        var id = 1L;
+        var customer = service.existsById(id);
+        assertFalse(customer);
+    }
+    @Test
+    void deleteById(){
+        CustomerFixtures.users(repository);
+        var id = 9L;
+        service.deleteById(id);
+        assertFalse(repository.findById(id).orElseThrow().getIsActive());
+    }
+
+    @Test
+    void deleteByIdRecordsDeletionTime(){
+        CustomerFixtures.users(repository);
+        var id = 9L;
+        service.deleteById(id);
+        assertThat(repository.findById(id).orElseThrow().getDeleted()).isNotNull();
+    }
+    @Test
+    void findAll(){
+        CustomerFixtures.users(repository);
+        var customers = service.findByIsActiveTrue();
+        assertThat(customers).hasSize(10);
+
+    }
+    @Test
+    void findAllIfFewIsDeleted(){
+        CustomerFixtures.deletedUsers(repository);
+        var customers = service.findByIsActiveTrue();
+        assertThat(customers).hasSize(7);
+
+    }
+    @Test
+    void add(){
+        var customer = getCustomer();
+        var customerSaved = service.add(customer);
+        assertThat(customerSaved).usingRecursiveComparison().isEqualTo(repository.findById(customer.getId()).orElseThrow());
+    }
+    @Test
+    void addRecordsEmailAndPhoneInUniquenessFilter(){
+        var customer = getCustomer();
+        service.add(customer);
+        assertTrue(uniquenessFilter.mightContainEmail(customer.getEmail()));
+        assertTrue(uniquenessFilter.mightContainPhone(customer.getPhone()));
+    }
+    @Test
+    void addIfEmailIsInUse(){
+        service.add(getCustomer());
+        var duplicate = getCustomer();
+        duplicate.setFullName("Olga Proms");
+        duplicate.setPhone("+38009822323");
+        assertThrows(CustomerAlreadyExistsException.class, () -> service.add(duplicate));
+    }
+    /**
+     * Customers saved through the repository bypass the uniqueness filter, so the service skips the lookups
+     * and the repository's unique indexes have to report the duplicates.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void addIfEmailIsInUseButMissingFromUniquenessFilter(){
+        var existing = getCustomer("Filter Miss", "filter-miss@gmail.com", "+38009800001");
+        existing.setId(1001L);
+        repository.save(existing);
+        var duplicate = getCustomer("Olga Proms", "filter-miss@gmail.com", "+38009800002");
+        assumeFalse(uniquenessFilter.mightContainEmail(duplicate.getEmail()), "false positive of the filter");
+        var exception = assertThrows(CustomerAlreadyExistsException.class, () -> service.add(duplicate));
+        assertEquals("Email filter-miss@gmail.com is already in use", exception.getMessage());
+    }
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void addIfPhoneIsInUseButMissingFromUniquenessFilter(){
+        var existing = getCustomer("Filter Miss", "filter-miss@gmail.com", "+38009800001");
+        existing.setId(1001L);
+        repository.save(existing);
+        var duplicate = getCustomer("Olga Proms", "olga@gmail.com", "+38009800001");
+        assumeFalse(uniquenessFilter.mightContainPhone(duplicate.getPhone()), "false positive of the filter");
+        var exception = assertThrows(CustomerAlreadyExistsException.class, () -> service.add(duplicate));
+        assertEquals("Phone number +38009800001 is already in use", exception.getMessage());
+    }
+    @Test
+    void update(){
+        CustomerFixtures.users(repository);
+        var id = 1L;
+        var updateDto = getCustomerUpdateDto();
+        var customerUpdated = service.findByIdAndIsActiveTrue(id)
+                .map(customer -> mapper.update(updateDto, customer))
+                .map(service::update).orElseThrow();
+        assertEquals(updateDto.getFullName(), customerUpdated.getFullName());
+        assertEquals(updateDto.getPhone(), customerUpdated.getPhone());
+
+    }
+
+    @Test
+    void repositoryIsInMemory() {
+        assertThat(repository).isInstanceOf(InMemoryCustomerRepository.class);
+    }
+
+    @Test
+    void findActiveFields() {
+        CustomerFixtures.users(repository);
+        var rows = service.findActiveFields(Set.of("email", "id"));
+        assertThat(rows).hasSize(10);
+        assertThat(rows.get(0)).containsOnlyKeys("id", "email");
+        assertThrows(IllegalArgumentException.class, () -> service.findActiveFields(Set.of("password")));
+    }
+
+    @Test
+    void saveRejectsNewCustomerWithTakenId() {
+        repository.save(getCustomer(1L));
+        var duplicate = getCustomer(1L);
+        duplicate.setEmail("other@gmail.com");
+        duplicate.setPhone("+380990000001");
+        var exception = assertThrows(DataIntegrityViolationException.class, () -> repository.save(duplicate));
+        assertThat(exception.getMessage()).contains("customer_pkey");
+        assertEquals("customer1@gmail.com", repository.findById(1L).orElseThrow().getEmail());
+    }
+
+    @Test
+    void saveMarksCustomerPersisted() {
+        var customer = repository.save(getCustomer(1L));
+        customer.setEmail("changed@gmail.com");
+        repository.save(customer);
+        assertEquals("changed@gmail.com", repository.findById(1L).orElseThrow().getEmail());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void rollbackRestoresChangedCustomers() {
+        repository.save(getCustomer(1L));
+        repository.save(getCustomer(2L));
+        var transaction = new TransactionTemplate(new InMemoryTransactionManager());
+        transaction.executeWithoutResult(status -> {
+            var changed = repository.findById(1L).orElseThrow();
+            changed.setFullName("Changed");
+            repository.save(changed);
+            repository.deleteById(2L);
+            repository.save(getCustomer(3L));
+            status.setRollbackOnly();
+        });
+        assertThat(repository.findAll()).extracting(Customer::getId).isEqualTo(List.of(1L, 2L));
+        assertEquals("Customer 1", repository.findById(1L).orElseThrow().getFullName());
+    }
+
+    @Test
+    void logRestoresCustomersAfterRestart(@TempDir Path directory) throws Exception {
+        var logPath = directory.resolve("customers.log");
+        try (var first = new InMemoryCustomerRepository(logPath, false)) {
+            LongStream.rangeClosed(1, 3).forEach(id -> first.save(getCustomer(id)));
+            first.deleteById(2L);
+        }
+        try (var restarted = new InMemoryCustomerRepository(logPath, false)) {
+            assertThat(restarted.findAll()).extracting(Customer::getId).isEqualTo(List.of(1L, 3L));
+            assertEquals("customer3@gmail.com", restarted.findById(3L).orElseThrow().getEmail());
+        }
+    }
+
+    @Test
+    void logIsCompactedWhenMostRecordsAreSuperseded(@TempDir Path directory) throws Exception {
+        var logPath = directory.resolve("customers.log");
+        try (var first = new InMemoryCustomerRepository(logPath, false)) {
+            var customer = first.save(getCustomer(1L));
+            for (int i = 0; i < 20_000; i++) {
+                customer.setFullName("Customer %d".formatted(i));
+                first.save(customer);
+            }
+            first.save(getCustomer(2L));
+        }
+        try (var compacted = new InMemoryCustomerRepository(logPath, false)) {
+            compacted.save(getCustomer(3L));
+        }
+        assertTrue(Files.notExists(directory.resolve("customers.log.compacted")));
+        try (var restarted = new InMemoryCustomerRepository(logPath, false)) {
+            assertThat(restarted.findAll()).extracting(Customer::getId).isEqualTo(List.of(1L, 2L, 3L));
+            assertEquals("Customer 19999", restarted.findById(1L).orElseThrow().getFullName());
+        }
+    }
+
+    private Customer getCustomer() {
+        Customer customer = new Customer();
+        customer.setFullName("Oleg Proms");
+        customer.setEmail("oleg@gmail.com");
+        customer.setPhone("+38009822322");
+        return customer;
+    }
+
+    private Customer getCustomer(String fullName, String email, String phone) {
+        Customer customer = new Customer();
+        customer.setFullName(fullName);
+        customer.setEmail(email);
+        customer.setPhone(phone);
+        return customer;
+    }
+
+    private CustomerUpdateDto getCustomerUpdateDto() {
+        return new CustomerUpdateDto("Anna Guy",
+                "+38009723328");
+    }
+
+    private Customer getCustomer(long id) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setFullName("Customer %d".formatted(id));
+        customer.setEmail("customer%d@gmail.com".formatted(id));
+        customer.setPhone("+38098%07d".formatted(id));
+        return customer;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.customerapi.service.audit;
+
+import com.example.customerapi.exception.CustomerAlreadyExistsException;
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.service.CustomerService;
+import com.example.customerapi.testcontainer.TestContainersConfig;
+import com.example.customerapi.web.dto.CustomerUpdateDto;
+import com.example.customerapi.web.mapper.CustomerMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@Testcontainers
+@SpringBootTest(properties = "customer.audit.flush-interval=10ms")
+@ContextConfiguration(classes = TestContainersConfig.class)
+public class AuditTrailTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Autowired
+    private CustomerService service;
+    @Autowired
+    private CustomerMapper mapper;
+    @Autowired
+    private CustomerRepository repository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanAll() {
+        repository.deleteAll();
+        jdbcTemplate.update("DELETE FROM customer_audit");
+    }
+
+    @Test
+    void recordsCommittedMutationsWithUpdateDiff() throws Exception {
+        var id = service.add(getCustomer()).getId();
+        service.findByIdAndIsActiveTrue(id)
+                .map(customer -> mapper.update(new CustomerUpdateDto(null, "+38009723328"), customer))
+                .map(service::update)
+                .orElseThrow();
+        service.deleteById(id);
+
+        var records = awaitRecords(id, 3);
+        assertThat(records).extracting(row -> row.get("action"))
+                .containsExactly("CREATE", "UPDATE", "DELETE");
+        assertThat((String) records.get(1).get("changes"))
+                .contains("\"phone\"")
+                .contains("+38009822322")
+                .contains("+38009723328")
+                .doesNotContain("fullName");
+    }
+
+    /**
+     * Records are written in the order they were published, so once the record of the later deletion is written,
+     * a record of the rolled back creation would have been written too.
+     */
+    @Test
+    void skipsRolledBackMutations() throws Exception {
+        var id = service.add(getCustomer()).getId();
+        var duplicate = getCustomer();
+        duplicate.setPhone("+38009822323");
+        try {
+            service.add(duplicate);
+        } catch (RuntimeException expected) {
+            // rejected as a duplicate
+        }
+        service.deleteById(id);
+
+        assertThat(awaitRecords(id, 2)).extracting(row -> row.get("action")).containsExactly("CREATE", "DELETE");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM customer_audit", Long.class)).isEqualTo(2L);
+    }
+
+    @Test
+    void discardsChangesStagedForFailedUpdate() throws Exception {
+        var id = service.add(getCustomer()).getId();
+        var other = getCustomer();
+        other.setFullName("Anna Guy");
+        other.setEmail("anna@gmail.com");
+        other.setPhone("+38009723328");
+        service.add(other);
+
+        var customer = service.findByIdAndIsActiveTrue(id).orElseThrow();
+        var staged = mapper.update(new CustomerUpdateDto(null, other.getPhone()), customer);
+        assertThrows(CustomerAlreadyExistsException.class, () -> service.update(staged));
+        staged.setPhone("+38009700000");
+        service.update(staged);
+
+        var records = awaitRecords(id, 2);
+        assertThat((String) records.get(1).get("changes"))
+                .contains("fullName")
+                .contains("+38009700000")
+                .doesNotContain(other.getPhone());
+    }
+
+    @Test
+    void spillsRecordsThatCannotBeWrittenAndWritesThemOnRestart(@TempDir Path directory) throws Exception {
+        var spillPath = directory.resolve("audit.spill");
+        var customer = getCustomer();
+        customer.setId(42L);
+        jdbcTemplate.execute("ALTER TABLE customer_audit RENAME TO customer_audit_unavailable");
+        try {
+            var trail = trail(spillPath);
+            trail.start();
+            trail.deleted(customer);
+            await(() -> Files.exists(spillPath));
+            trail.stop();
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE customer_audit_unavailable RENAME TO customer_audit");
+        }
+
+        var restarted = trail(spillPath);
+        restarted.start();
+        await(() -> auditCount(42L) == 1);
+        restarted.stop();
+
+        assertThat(awaitRecords(42L, 1)).extracting(row -> row.get("action")).containsExactly("DELETE");
+        assertTrue(Files.notExists(spillPath));
+        assertTrue(Files.notExists(directory.resolve("audit.spill.recovering")));
+    }
+
+    private AuditTrail trail(Path spillPath) {
+        return new AuditTrail(context.getBeanProvider(DataSource.class), transactionManager, objectMapper,
+                new SimpleMeterRegistry(), true, 100, 10, Duration.ofMillis(10), true, AuditOverflowPolicy.DROP,
+                2, Duration.ofMillis(10), spillPath.toString());
+    }
+
+    private long auditCount(long customerId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM customer_audit WHERE customer_id = ?", Long.class, customerId);
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                fail("Condition not met within %d ms".formatted(TIMEOUT_MILLIS));
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private List<Map<String, Object>> awaitRecords(long customerId, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        List<Map<String, Object>> records;
+        do {
+            records = jdbcTemplate.queryForList(
+                    "SELECT action, changes::text AS changes FROM customer_audit WHERE customer_id = ? ORDER BY id",
+                    customerId);
+            if (records.size() >= expected) {
+                return records;
+            }
+            Thread.sleep(20);
+        } while (System.currentTimeMillis() < deadline);
+        return records;
+    }
+
+    private Customer getCustomer() {
+        Customer customer = new Customer();
+        customer.setFullName("Oleg Proms");
+        customer.setEmail("oleg@gmail.com");
+        customer.setPhone("+38009822322");
+        return customer;
+    }
+}
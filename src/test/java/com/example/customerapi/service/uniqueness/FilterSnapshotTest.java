@@ -0,0 +1,73 @@
+package com.example.customerapi.service.uniqueness;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FilterSnapshotTest {
+    private static final long EXPECTED_INSERTIONS = 1000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void restoresKeysAndWatermark() throws Exception {
+        var path = directory.resolve("filter.snapshot");
+        FilterSnapshot.write(path, new FilterSnapshot.Watermark(42, 7), filled("email"), filled("phone"));
+
+        var emails = empty();
+        var phones = empty();
+        var snapshot = FilterSnapshot.read(path, emails, phones).orElseThrow();
+
+        assertEquals(new FilterSnapshot.Watermark(42, 7), snapshot.watermark());
+        assertTrue(snapshot.restore(emails, phones));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(emails.mightContain("email" + i));
+            assertTrue(phones.mightContain("phone" + i));
+        }
+    }
+
+    @Test
+    void ignoresDamagedSnapshot() throws Exception {
+        var path = directory.resolve("filter.snapshot");
+        FilterSnapshot.write(path, new FilterSnapshot.Watermark(42, 7), filled("email"), filled("phone"));
+        var bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(path, bytes);
+
+        assertTrue(FilterSnapshot.read(path, empty(), empty()).isEmpty());
+    }
+
+    @Test
+    void ignoresSnapshotOfDifferentSize() throws Exception {
+        var path = directory.resolve("filter.snapshot");
+        FilterSnapshot.write(path, new FilterSnapshot.Watermark(42, 7), filled("email"), filled("phone"));
+
+        var larger = BloomFilter.create(EXPECTED_INSERTIONS * 2, FALSE_POSITIVE_PROBABILITY);
+        assertTrue(FilterSnapshot.read(path, larger, larger).isEmpty());
+    }
+
+    @Test
+    void ignoresMissingSnapshot() throws Exception {
+        assertFalse(FilterSnapshot.read(directory.resolve("missing"), empty(), empty()).isPresent());
+    }
+
+    private BloomFilter filled(String prefix) {
+        var filter = empty();
+        for (int i = 0; i < 100; i++) {
+            filter.put(prefix + i);
+        }
+        return filter;
+    }
+
+    private BloomFilter empty() {
+        return BloomFilter.create(EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.customerapi.service.uniqueness;
+
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.sharding.ShardRouter;
+import com.example.customerapi.testcontainer.TestContainersConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestContainersConfig.class)
+public class UniquenessFilterTest {
+    private static final long EXPECTED_INSERTIONS = 1000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    @Autowired
+    private CustomerRepository repository;
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ShardRouter router;
+
+    @TempDir
+    private Path directory;
+
+    @AfterEach
+    void cleanAll() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void restoresSnapshotAndReadsOnlyChangedCustomers() {
+        var snapshotPath = directory.resolve("uniqueness-filter.snapshot");
+        for (long id = 1; id <= 3; id++) {
+            repository.save(getCustomer(id));
+        }
+        var first = filter(snapshotPath);
+        first.afterSingletonsInstantiated();
+        first.snapshot();
+        assertTrue(Files.isRegularFile(snapshotPath));
+
+        var changed = repository.findById(1L).orElseThrow();
+        changed.setPhone("+380990000001");
+        changed.setUpdated(Instant.now().getEpochSecond());
+        repository.save(changed);
+        repository.save(getCustomer(4L));
+
+        var meterRegistry = new SimpleMeterRegistry();
+        var restored = filter(snapshotPath, meterRegistry);
+        restored.afterSingletonsInstantiated();
+
+        assertEquals(4, insertions(meterRegistry, "email"));
+        assertEquals(5, insertions(meterRegistry, "phone"));
+        for (long id = 1; id <= 4; id++) {
+            assertTrue(restored.mightContainEmail("customer%d@gmail.com".formatted(id)));
+        }
+        assertTrue(restored.mightContainPhone("+380990000001"));
+        assertTrue(restored.mightContainPhone("+380980000004"));
+        assertFalse(restored.mightContainEmail("customer5@gmail.com"));
+    }
+
+    @Test
+    void ignoresSnapshotAheadOfDatabase() {
+        var snapshotPath = directory.resolve("uniqueness-filter.snapshot");
+        for (long id = 1; id <= 3; id++) {
+            repository.save(getCustomer(id));
+        }
+        var first = filter(snapshotPath);
+        first.afterSingletonsInstantiated();
+        first.snapshot();
+        repository.deleteAll();
+        repository.save(getCustomer(1L));
+
+        var meterRegistry = new SimpleMeterRegistry();
+        var rebuilt = filter(snapshotPath, meterRegistry);
+        rebuilt.afterSingletonsInstantiated();
+
+        assertEquals(1, insertions(meterRegistry, "email"));
+        assertTrue(rebuilt.mightContainEmail("customer1@gmail.com"));
+    }
+
+    private UniquenessFilter filter(Path snapshotPath) {
+        return filter(snapshotPath, new SimpleMeterRegistry());
+    }
+
+    private UniquenessFilter filter(Path snapshotPath, SimpleMeterRegistry meterRegistry) {
+        return new UniquenessFilter(context.getBeanProvider(DataSource.class), transactionManager, router,
+                meterRegistry, EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY, snapshotPath.toString());
+    }
+
+    private double insertions(SimpleMeterRegistry meterRegistry, String key) {
+        return meterRegistry.get("customer.uniqueness.filter.insertions").tag("key", key).gauge().value();
+    }
+
+    private Customer getCustomer(long id) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setFullName("Customer %d".formatted(id));
+        customer.setEmail("customer%d@gmail.com".formatted(id));
+        customer.setPhone("+38098%07d".formatted(id));
+        return customer;
+    }
+}
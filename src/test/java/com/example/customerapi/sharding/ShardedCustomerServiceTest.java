@@ -0,0 +1,202 @@
+package com.example.customerapi.sharding;
+
+import com.example.customerapi.exception.CustomerAlreadyExistsException;
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.service.CountMode;
+import com.example.customerapi.service.CustomerService;
+import com.example.customerapi.service.archive.CustomerArchiver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers
+@SpringBootTest
+public class ShardedCustomerServiceTest {
+    private static final int CUSTOMERS = 20;
+
+    @Container
+    private static final PostgreSQLContainer<?> firstShard =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16.0"));
+    @Container
+    private static final PostgreSQLContainer<?> secondShard =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16.0"));
+
+    @Autowired
+    private CustomerService service;
+    @Autowired
+    private CustomerRepository repository;
+    @Autowired
+    private ShardRouter router;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private CustomerDirectory directory;
+    @Autowired
+    private ShardDataSources shards;
+    @Autowired
+    private CustomerArchiver archiver;
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        registry.add("customer.sharding.enabled", () -> "true");
+        registry.add("customer.sharding.shards[0].url", firstShard::getJdbcUrl);
+        registry.add("customer.sharding.shards[0].username", firstShard::getUsername);
+        registry.add("customer.sharding.shards[0].password", firstShard::getPassword);
+        registry.add("customer.sharding.shards[1].url", secondShard::getJdbcUrl);
+        registry.add("customer.sharding.shards[1].username", secondShard::getUsername);
+        registry.add("customer.sharding.shards[1].password", secondShard::getPassword);
+    }
+
+    @AfterEach
+    void cleanAll() {
+        router.onEachShard(shard -> {
+            repository.deleteAll();
+            jdbcTemplate.update("DELETE FROM customer_archive");
+        });
+        jdbcTemplate.update("DELETE FROM customer_directory");
+    }
+
+    @Test
+    void addSpreadsCustomersOverShards() {
+        for (int i = 0; i < CUSTOMERS; i++) {
+            service.add(getCustomer(i));
+        }
+        var firstShardCount = router.onShard(0, repository::countByIsActiveTrue);
+        var secondShardCount = router.onShard(1, repository::countByIsActiveTrue);
+        assertTrue(firstShardCount > 0);
+        assertTrue(secondShardCount > 0);
+        assertEquals(CUSTOMERS, firstShardCount + secondShardCount);
+    }
+
+    @Test
+    void findAllMergesShardsOrderedById() {
+        for (int i = 0; i < CUSTOMERS; i++) {
+            service.add(getCustomer(i));
+        }
+        var customers = service.findByIsActiveTrue();
+        assertThat(customers).hasSize(CUSTOMERS).isSortedAccordingTo(Comparator.comparing(Customer::getId));
+        assertEquals(CUSTOMERS, service.countActive(CountMode.EXACT));
+    }
+
+    @Test
+    void findByIdReadsFromCustomersShard() {
+        var saved = service.add(getCustomer(0));
+        assertThat(service.findByIdAndIsActiveTrue(saved.getId())).isPresent();
+        service.deleteById(saved.getId());
+        assertThat(service.findByIdAndIsActiveTrue(saved.getId())).isEmpty();
+    }
+
+    @Test
+    void addIfEmailIsInUseOnAnotherShard() {
+        service.add(getCustomer(0));
+        for (int i = 1; i < CUSTOMERS; i++) {
+            var duplicate = getCustomer(i);
+            duplicate.setEmail(getCustomer(0).getEmail());
+            assertThrows(CustomerAlreadyExistsException.class, () -> service.add(duplicate));
+        }
+        assertEquals(1, service.countActive(CountMode.EXACT));
+    }
+
+    @Test
+    void registerReportsOnlyEmailAndPhoneConflictsAsInUse() {
+        var saved = service.add(getCustomer(0));
+        var sameId = getCustomer(1);
+        sameId.setId(saved.getId());
+
+        assertThrows(DataIntegrityViolationException.class, () -> directory.register(sameId));
+        var samePhone = getCustomer(2);
+        samePhone.setId(saved.getId() + 1);
+        samePhone.setPhone(saved.getPhone());
+        var exception = assertThrows(CustomerAlreadyExistsException.class, () -> directory.register(samePhone));
+        assertEquals("Phone number %s is already in use".formatted(saved.getPhone()), exception.getMessage());
+    }
+
+    @Test
+    void findActiveFieldsMergesShardsOrderedById() {
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            ids.add(service.add(getCustomer(i)).getId());
+        }
+        ids.sort(Comparator.naturalOrder());
+        var emails = ids.stream()
+                .map(id -> service.findByIdAndIsActiveTrue(id).orElseThrow().getEmail())
+                .toList();
+
+        var rows = service.findActiveFields(Set.of("email"));
+
+        assertThat(rows).extracting(row -> row.get("email")).containsExactlyElementsOf(emails);
+        assertThat(rows).allSatisfy(row -> assertThat(row).containsOnlyKeys("email"));
+    }
+
+    @Test
+    void backfillClaimsCustomersMissingFromDirectory() {
+        var existing = service.add(getCustomer(0));
+        directory.release(existing.getId());
+        int shard = router.shardFor(existing.getId());
+
+        assertEquals(1, directory.backfill(shard, shards.get(shard), router, 10));
+        assertEquals(0, directory.backfill(shard, shards.get(shard), router, 10));
+
+        var duplicate = getCustomer(1);
+        duplicate.setEmail(existing.getEmail());
+        assertThrows(CustomerAlreadyExistsException.class, () -> service.add(duplicate));
+    }
+
+    @Test
+    void backfillRejectsCustomersStoredOnAnotherShard() {
+        var saved = service.add(getCustomer(0));
+        int shard = router.shardFor(saved.getId());
+        int otherShard = 1 - shard;
+        var misplaced = getCustomer(1);
+        misplaced.setId(saved.getId() + 1);
+        while (router.shardFor(misplaced.getId()) != shard) {
+            misplaced.setId(misplaced.getId() + 1);
+        }
+        router.onShard(otherShard, () -> repository.save(misplaced));
+
+        assertThrows(IllegalStateException.class,
+                () -> directory.backfill(otherShard, shards.get(otherShard), router, 10));
+    }
+
+    @Test
+    void archiveReleasesDirectoryClaims() {
+        var archived = service.add(getCustomer(0));
+        service.deleteById(archived.getId());
+        router.onShard(router.shardFor(archived.getId()), () -> jdbcTemplate.update(
+                "UPDATE customer SET deleted = 0 WHERE id = ?", archived.getId()));
+
+        assertEquals(1, archiver.archive());
+
+        var reused = getCustomer(1);
+        reused.setEmail(archived.getEmail());
+        reused.setPhone(archived.getPhone());
+        assertThat(service.add(reused).getId()).isNotNull();
+    }
+
+    private Customer getCustomer(int number) {
+        Customer customer = new Customer();
+        customer.setFullName("Customer %d".formatted(number));
+        customer.setEmail("customer%d@gmail.com".formatted(number));
+        customer.setPhone("+380098%05d".formatted(number));
+        return customer;
+    }
+}
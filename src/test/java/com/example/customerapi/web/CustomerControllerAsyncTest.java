@@ -0,0 +1,77 @@
+package com.example.customerapi.web;
+
+import com.example.customerapi.service.CustomerService;
+import com.example.customerapi.testcontainer.TestContainersConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sizing of the thread pool running asynchronously handled CustomerController endpoints,
+ * shrunk here to a single thread without a queue.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "customer.deadline.async.pool-size=1",
+        "customer.deadline.async.queue-capacity=0"})
+@ContextConfiguration(classes = TestContainersConfig.class)
+@AutoConfigureMockMvc
+public class CustomerControllerAsyncTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @SpyBean
+    private CustomerService service;
+
+    @Test
+    void shouldRejectRequestWhenAsyncPoolIsFull() throws Exception {
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        }).when(service).findByIsActiveTrue();
+
+        var running = mockMvc.perform(get("/api/customers"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.await(5, TimeUnit.SECONDS);
+        try {
+            var rejected = dispatched(mockMvc.perform(get("/api/customers")).andReturn());
+            status().isServiceUnavailable().match(rejected);
+            jsonPath("$.message").value("Server is busy, try again later").match(rejected);
+        } finally {
+            release.countDown();
+        }
+
+        mockMvc.perform(asyncDispatch(running))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * A rejected Callable may be reported while the request is handled or through the async dispatch.
+     */
+    private MvcResult dispatched(MvcResult result) throws Exception {
+        return result.getRequest().isAsyncStarted()
+                ? mockMvc.perform(asyncDispatch(result)).andReturn()
+                : result;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.customerapi.web;
+
+import com.example.customerapi.budget.QueryCountingConfig;
+import com.example.customerapi.budget.Usage;
+import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.testcontainer.TestContainersConfig;
+import com.example.customerapi.web.dto.CustomerCreationDto;
+import com.example.customerapi.web.dto.CustomerUpdateDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query and allocation budgets of the CustomerController endpoints.
+ * Each endpoint is called a few times to warm up class loading, the JIT and query plan caches,
+ * then measured on the test thread: the most SQL statements of any measured call must stay within the query budget
+ * and the fewest bytes allocated by a measured call within the allocation budget.
+ * A change that adds a query to an endpoint fails here; raise the budget only together with the reason.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {TestContainersConfig.class, QueryCountingConfig.class})
+@AutoConfigureMockMvc
+public class CustomerControllerBudgetTest {
+    private static final int WARMUP_CALLS = 3;
+    private static final int MEASURED_CALLS = 3;
+    private static final long MB = 1024 * 1024;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CustomerRepository repository;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @AfterEach
+    public void cleanAll() {
+        repository.deleteAll();
+    }
+
+    /**
+     * Full name lookup and insert; the email and phone lookups are skipped for new values.
+     */
+    @Test
+    void create() throws Exception {
+        assertWithinBudget(2, 2 * MB, call -> {
+            var customer = new CustomerCreationDto("Budget Customer %d".formatted(call),
+                    "budget%d@gmail.com".formatted(call), "+3809900%04d".formatted(call));
+            return () -> mockMvc.perform(post("/api/customers")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(customer)))
+                    .andExpect(status().isCreated());
+        });
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void findAll() throws Exception {
+        assertWithinBudget(1, 2 * MB, call -> () -> mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/customers"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void findAllFields() throws Exception {
+        assertWithinBudget(1, 2 * MB, call -> () -> mockMvc.perform(get("/api/customers").param("fields", "id,email"))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void findById() throws Exception {
+        assertWithinBudget(1, MB, call -> () -> mockMvc.perform(get("/api/customers/{id}", 1))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void findFieldsById() throws Exception {
+        assertWithinBudget(1, MB, call -> () -> mockMvc.perform(get("/api/customers/{id}", 1).param("fields", "email"))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void exists() throws Exception {
+        assertWithinBudget(1, MB, call -> () -> mockMvc.perform(head("/api/customers/{id}", 1))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void countExact() throws Exception {
+        assertWithinBudget(1, MB, call -> () -> mockMvc.perform(get("/api/customers/count").param("mode", "exact"))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void countApproximate() throws Exception {
+        assertWithinBudget(1, MB, call -> () -> mockMvc.perform(get("/api/customers/count").param("mode", "approximate"))
+                .andExpect(status().isOk()));
+    }
+
+    /**
+     * Find, full name and email lookups, the select of the merge and the update.
+     */
+    @Test
+    @Sql("/users-create.sql")
+    void update() throws Exception {
+        assertWithinBudget(5, 2 * MB, call -> {
+            var update = new CustomerUpdateDto("Updated User %d".formatted(call), "+3809800%04d".formatted(call));
+            return () -> mockMvc.perform(patch("/api/customers/{id}", 1)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(update)))
+                    .andExpect(status().isOk());
+        });
+    }
+
+    /**
+     * Find and the soft delete update.
+     */
+    @Test
+    @Sql("/users-create.sql")
+    void deleteById() throws Exception {
+        assertWithinBudget(2, MB, call -> () -> mockMvc.perform(delete("/api/customers/{id}", call + 1))
+                .andExpect(status().isNoContent()));
+    }
+
+    /**
+     * Warms up and measures the calls produced for consecutive call numbers.
+     *
+     * @param queryBudget      The most statements a call may execute.
+     * @param allocationBudget The most bytes a call may allocate on the request thread.
+     * @param calls            Produces the call to make for a call number, so that writes can use distinct data.
+     */
+    private void assertWithinBudget(long queryBudget, long allocationBudget,
+                                    IntFunction<Usage.Action> calls) throws Exception {
+        for (int call = 0; call < WARMUP_CALLS; call++) {
+            calls.apply(call).run();
+        }
+        long queries = 0;
+        long allocatedBytes = Long.MAX_VALUE;
+        for (int call = WARMUP_CALLS; call < WARMUP_CALLS + MEASURED_CALLS; call++) {
+            var usage = Usage.of(calls.apply(call));
+            queries = Math.max(queries, usage.queries());
+            allocatedBytes = Math.min(allocatedBytes, usage.allocatedBytes());
+        }
+        assertThat(queries).as("SQL statements per call").isLessThanOrEqualTo(queryBudget);
+        assertThat(allocatedBytes).as("bytes allocated per call").isLessThanOrEqualTo(allocationBudget);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.customerapi.web;
+
+import com.example.customerapi.deadline.DeadlineInterceptor;
+import com.example.customerapi.deadline.StatementCanceller;
+import com.example.customerapi.model.Customer;
+import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.service.CustomerService;
+import com.example.customerapi.testcontainer.TestContainersConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Request deadlines of the CustomerController endpoints.
+ * Not transactional, unlike CustomerControllerTest, so that requests begin transactions of their own.
+ * Long statements are simulated by making the service's read of active customers run pg_sleep.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestContainersConfig.class)
+@AutoConfigureMockMvc
+public class CustomerControllerDeadlineTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CustomerRepository repository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @SpyBean
+    private CustomerService service;
+
+    @AfterEach
+    public void cleanAll() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void shouldFindCustomerWithinDeadline() throws Exception {
+        mockMvc.perform(get("/api/customers/{id}", 1).header(DeadlineInterceptor.TIMEOUT_HEADER, "10000"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.id").value("1"));
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void shouldRejectRequestWhenDeadlineHasPassed() throws Exception {
+        var expired = meterRegistry.counter("customer.requests.deadline.exceeded", "reason", "expired");
+        var before = expired.count();
+
+        var started = mockMvc.perform(get("/api/customers").header(DeadlineInterceptor.TIMEOUT_HEADER, "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpectAll(
+                        status().isGatewayTimeout(),
+                        jsonPath("$.message").value("Request deadline exceeded"));
+
+        assertThat(expired.count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void shouldCancelStatementThatOutlivesDeadline() throws Exception {
+        var cancelled = meterRegistry.counter("customer.requests.deadline.exceeded", "reason", "cancelled");
+        var before = cancelled.count();
+        doAnswer(invocation -> sleep(5)).when(service).findByIsActiveTrue();
+
+        var started = mockMvc.perform(get("/api/customers").header(DeadlineInterceptor.TIMEOUT_HEADER, "1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpectAll(
+                        status().isGatewayTimeout(),
+                        jsonPath("$.message").value("Request deadline exceeded"));
+
+        assertThat(cancelled.count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void shouldCancelStatementWhenClientDisconnects() throws Exception {
+        var disconnected = meterRegistry.counter("customer.requests.deadline.exceeded", "reason", "disconnected");
+        var before = disconnected.count();
+        var failure = new CompletableFuture<RuntimeException>();
+        doAnswer(invocation -> {
+            try {
+                return sleep(10);
+            } catch (RuntimeException exception) {
+                failure.complete(exception);
+                throw exception;
+            }
+        }).when(service).findByIsActiveTrue();
+
+        var started = mockMvc.perform(get("/api/customers").header(DeadlineInterceptor.TIMEOUT_HEADER, "20000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitRunning("SELECT pg_sleep(10)");
+        var asyncContext = (MockAsyncContext) started.getRequest().getAsyncContext();
+        for (var listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Connection reset by peer")));
+        }
+
+        assertThat(failure.get(5, TimeUnit.SECONDS)).matches(StatementCanceller::isCancellation);
+        assertThat(disconnected.count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void shouldRejectInvalidRequestTimeout() throws Exception {
+        mockMvc.perform(get("/api/customers").header(DeadlineInterceptor.TIMEOUT_HEADER, "-1"))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("$.message").value("X-Request-Timeout should be a non-negative number of milliseconds"));
+    }
+
+    /**
+     * Runs pg_sleep in a transaction, so that the statement gets the request's deadline as its timeout.
+     */
+    private List<Customer> sleep(int seconds) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> jdbcTemplate.execute("SELECT pg_sleep(%d)".formatted(seconds)));
+        return List.of();
+    }
+
+    private void awaitRunning(String statement) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            var running = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM pg_stat_activity WHERE state = 'active' AND query = ?", Long.class, statement);
+            if (running != null && running > 0) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("%s did not start".formatted(statement));
+    }
+}
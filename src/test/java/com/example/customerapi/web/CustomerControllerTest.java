@@ -15,12 +15,15 @@ import org.springframework.http.*;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Testcontainers
@@ -54,7 +57,7 @@ public class CustomerControllerTest {
 
         result.andExpectAll(
                 status().isCreated(),
-                jsonPath("$.id").value(1L),
+                jsonPath("$.id").isString(),
                 jsonPath("$.fullName").value(customer.getFullName()),
                 jsonPath("$.email").value(customer.getEmail()),
                 jsonPath("$.phone").value(customer.getPhone()));
@@ -113,8 +116,12 @@ public class CustomerControllerTest {
 
     @Test
     @Sql("/users-create.sql")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     void shouldFindAllCustomers() throws Exception {
-        var result = mockMvc.perform(get("/api/customers"));
+        var started = mockMvc.perform(get("/api/customers"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var result = mockMvc.perform(asyncDispatch(started));
 
         result.andExpectAll(
                 status().isOk(),
@@ -125,8 +132,12 @@ public class CustomerControllerTest {
     }
     @Test
     @Sql("/deleted-users-create.sql")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     void shouldFindAllCustomersIfFewIsDeleted() throws Exception {
-        var result = mockMvc.perform(get("/api/customers"));
+        var started = mockMvc.perform(get("/api/customers"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var result = mockMvc.perform(asyncDispatch(started));
 
         result.andExpectAll(
                 status().isOk(),
@@ -136,6 +147,60 @@ public class CustomerControllerTest {
 
     }
 
+    @Test
+    @Sql("/users-create.sql")
+    void shouldFindAllCustomersWithRequestedFieldsOnly() throws Exception {
+        var result = mockMvc.perform(get("/api/customers").param("fields", "id,email"));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$", hasSize(10)),
+                jsonPath("$[0].id").isString(),
+                jsonPath("$[0].email").exists(),
+                jsonPath("$[0].fullName").doesNotExist(),
+                jsonPath("$[0].phone").doesNotExist()
+        );
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void shouldFindAllCustomersWithUnknownField() throws Exception {
+        var result = mockMvc.perform(get("/api/customers").param("fields", "id,password"));
+
+        result.andExpectAll(
+                status().isBadRequest(),
+                jsonPath("$.message").value("Unknown field password"));
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    void shouldFindCustomerByIdWithRequestedFieldsOnly() throws Exception {
+        var id = 1L;
+
+        var result = mockMvc.perform(get("/api/customers/{id}", id).param("fields", "email"));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.email").value("user1@example.com"),
+                jsonPath("$.id").doesNotExist());
+    }
+
+    @Test
+    @Sql("/users-create.sql")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldFindAllCustomersAsCbor() throws Exception {
+        var cbor = MediaType.parseMediaType("application/cbor");
+
+        var started = mockMvc.perform(get("/api/customers").accept(cbor))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var result = mockMvc.perform(asyncDispatch(started));
+
+        result.andExpectAll(
+                status().isOk(),
+                content().contentType(cbor));
+    }
+
     @Test
     @Sql("/users-create.sql")
     void shouldFindCustomerByIdIfExist() throws Exception {
@@ -145,7 +210,7 @@ public class CustomerControllerTest {
 
         result.andExpectAll(
                 status().isOk(),
-                jsonPath("$.id").value(1L));
+                jsonPath("$.id").value("1"));
     }
     @Test
     @Sql("/deleted-users-create.sql")
@@ -157,6 +222,48 @@ public class CustomerControllerTest {
         result.andExpectAll(status().isNotFound());
     }
 
+    @Test
+    @Sql("/users-create.sql")
+    void shouldFindThatCustomerExists() throws Exception {
+        var id = 1L;
+
+        var result = mockMvc.perform(head("/api/customers/{id}", id));
+
+        result.andExpectAll(status().isOk());
+    }
+
+    @Test
+    @Sql("/deleted-users-create.sql")
+    void shouldFindThatCustomerNotExistsIfThisIsDeleted() throws Exception {
+        var id = 1L;
+
+        var result = mockMvc.perform(head("/api/customers/{id}", id));
+
+        result.andExpectAll(status().isNotFound());
+    }
+
+    @Test
+    @Sql("/deleted-users-create.sql")
+    void shouldCountActiveCustomers() throws Exception {
+        var result = mockMvc.perform(get("/api/customers/count"));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.count").value(7),
+                jsonPath("$.approximate").value(false));
+    }
+
+    @Test
+    @Sql("/deleted-users-create.sql")
+    void shouldCountActiveCustomersApproximately() throws Exception {
+        var result = mockMvc.perform(get("/api/customers/count").param("mode", "approximate"));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.count").isNumber(),
+                jsonPath("$.approximate").value(true));
+    }
+
     @Test
     @Sql("/users-create.sql")
     void shouldDeleteCustomerById() throws Exception {
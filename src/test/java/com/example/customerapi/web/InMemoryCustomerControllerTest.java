@@ -0,0 +1,348 @@
+package com.example.customerapi.web;
+
+import com.example.customerapi.fixture.CustomerFixtures;
+import com.example.customerapi.repository.CustomerRepository;
+import com.example.customerapi.web.dto.CustomerCreationDto;
+import com.example.customerapi.web.dto.CustomerUpdateDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the controller tests against the in-memory repository, seeding customers through the repository
+ * instead of SQL scripts.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("in-memory")
+@Transactional
+@AutoConfigureMockMvc
+public class InMemoryCustomerControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CustomerRepository repository;
+
+    @AfterEach
+    public void cleanAll() {
+        repository.deleteAll();
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void shouldCreateNewCustomerWhenCustomerIsValid() throws Exception {
+
+        var customer = getCustomer("Oleg Proms", "oleg@gmail.com", "+38009822322");
+        mapper.findAndRegisterModules();
+        var json = mapper.writeValueAsString(customer);
+        var result = mockMvc.perform(post("/api/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json));
+
+        result.andExpectAll(
+                status().isCreated(),
+                jsonPath("$.id").isString(),
+                jsonPath("$.fullName").value(customer.getFullName()),
+                jsonPath("$.email").value(customer.getEmail()),
+                jsonPath("$.phone").value(customer.getPhone()));
+    }
+
+    @Test
+    void shouldCreateNewCustomerWhenCustomerWithNotAllowedFullName() throws Exception {
+        CustomerFixtures.users(repository);
+        var customer = getCustomer("-", "oleg@gmail.com", "+38009822322");
+        mapper.findAndRegisterModules();
+        var json = mapper.writeValueAsString(customer);
+        var result = mockMvc.perform(post("/api/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json));
+
+        result.andExpectAll(
+                status().isBadRequest(),
+                jsonPath("$.message").value("Full name should be between 2 and 50 characters," +
+                        " including whitespaces"));
+
+    }
+
+    @Test
+    void shouldCreateNewCustomerWhenCustomerWithNotAllowedEmail() throws Exception {
+        CustomerFixtures.users(repository);
+        var customer = getCustomer("Oleg Proms", "-", "+38009822322");
+        mapper.findAndRegisterModules();
+        var json = mapper.writeValueAsString(customer);
+        var result = mockMvc.perform(post("/api/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json));
+
+        result.andExpectAll(
+                status().isBadRequest(),
+                jsonPath("$.message").value("Email should be between 2 and 100 characters," +
+                        " Enter a valid email address"));
+
+    }
+
+    @Test
+    void shouldCreateNewCustomerWhenCustomerWithNotAllowedPhone() throws Exception {
+        CustomerFixtures.users(repository);
+        var customer = getCustomer("Oleg Proms", "oleg@gmail.com", "-");
+        mapper.findAndRegisterModules();
+        var json = mapper.writeValueAsString(customer);
+        var result = mockMvc.perform(post("/api/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json));
+
+        result.andExpectAll(
+                status().isBadRequest(),
+                jsonPath("$.message").value("Phone number should be between 6 and 14 digits, " +
+                        "Phone number should start with '+', followed by digits"));
+    }
+
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldFindAllCustomers() throws Exception {
+        CustomerFixtures.users(repository);
+        var started = mockMvc.perform(get("/api/customers"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var result = mockMvc.perform(asyncDispatch(started));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$").isArray(),
+                jsonPath("$", hasSize(10))
+        );
+
+    }
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldFindAllCustomersIfFewIsDeleted() throws Exception {
+        CustomerFixtures.deletedUsers(repository);
+        var started = mockMvc.perform(get("/api/customers"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var result = mockMvc.perform(asyncDispatch(started));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$").isArray(),
+                jsonPath("$", hasSize(7))
+        );
+
+    }
+
+    @Test
+    void shouldFindAllCustomersWithRequestedFieldsOnly() throws Exception {
+        CustomerFixtures.users(repository);
+        var result = mockMvc.perform(get("/api/customers").param("fields", "id,email"));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$", hasSize(10)),
+                jsonPath("$[0].id").isString(),
+                jsonPath("$[0].email").exists(),
+                jsonPath("$[0].fullName").doesNotExist(),
+                jsonPath("$[0].phone").doesNotExist()
+        );
+    }
+
+    @Test
+    void shouldFindAllCustomersWithUnknownField() throws Exception {
+        CustomerFixtures.users(repository);
+        var result = mockMvc.perform(get("/api/customers").param("fields", "id,password"));
+
+        result.andExpectAll(
+                status().isBadRequest(),
+                jsonPath("$.message").value("Unknown field password"));
+    }
+
+    @Test
+    void shouldFindCustomerByIdWithRequestedFieldsOnly() throws Exception {
+        CustomerFixtures.users(repository);
+        var id = 1L;
+
+        var result = mockMvc.perform(get("/api/customers/{id}", id).param("fields", "email"));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.email").value("user1@example.com"),
+                jsonPath("$.id").doesNotExist());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldFindAllCustomersAsCbor() throws Exception {
+        CustomerFixtures.users(repository);
+        var cbor = MediaType.parseMediaType("application/cbor");
+
+        var started = mockMvc.perform(get("/api/customers").accept(cbor))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var result = mockMvc.perform(asyncDispatch(started));
+
+        result.andExpectAll(
+                status().isOk(),
+                content().contentType(cbor));
+    }
+
+    @Test
+    void shouldFindCustomerByIdIfExist() throws Exception {
+        CustomerFixtures.users(repository);
+        var id = 1L;
+
+        var result = mockMvc.perform(get(("/api/customers/{id}"), id));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.id").value("1"));
+    }
+    @Test
+    void shouldFindCustomerByIdIfThisIsDeleted() throws Exception {
+        CustomerFixtures.deletedUsers(repository);
+        var id = 1L;
+
+        var result = mockMvc.perform(get(("/api/customers/{id}"), id));
+
+        result.andExpectAll(status().isNotFound());
+    }
+
+    @Test
+    void shouldFindThatCustomerExists() throws Exception {
+        CustomerFixtures.users(repository);
+        var id = 1L;
+
+        var result = mockMvc.perform(head("/api/customers/{id}", id));
+
+        result.andExpectAll(status().isOk());
+    }
+
+    @Test
+    void shouldFindThatCustomerNotExistsIfThisIsDeleted() throws Exception {
+        CustomerFixtures.deletedUsers(repository);
+        var id = 1L;
+
+        var result = mockMvc.perform(head("/api/customers/{id}", id));
+
+        result.andExpectAll(status().isNotFound());
+    }
+
+    @Test
+    void shouldCountActiveCustomers() throws Exception {
+        CustomerFixtures.deletedUsers(repository);
+        var result = mockMvc.perform(get("/api/customers/count"));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.count").value(7),
+                jsonPath("$.approximate").value(false));
+    }
+
+    @Test
+    void shouldCountActiveCustomersApproximately() throws Exception {
+        CustomerFixtures.deletedUsers(repository);
+        var result = mockMvc.perform(get("/api/customers/count").param("mode", "approximate"));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.count").isNumber(),
+                jsonPath("$.approximate").value(true));
+    }
+
+    @Test
+    void shouldDeleteCustomerById() throws Exception {
+        CustomerFixtures.users(repository);
+        var id = 1L;
+
+        var result = mockMvc.perform(delete("/api/customers/{id}", id));
+
+        result.andExpectAll(status().isNoContent());
+        Assertions.assertThat(repository.findById(id).orElseThrow().getIsActive()).isFalse();
+
+    }
+
+    @Test
+    void shouldUpdateCustomer() throws Exception {
+        CustomerFixtures.users(repository);
+        var id = 1L;
+        var customer = getCustomer("Anna Guy", "+38009723328");
+        mapper.findAndRegisterModules();
+        var json = mapper.writeValueAsString(customer);
+        var result = mockMvc.perform(patch("/api/customers/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json));
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.fullName").value(customer.getFullName()),
+                jsonPath("$.phone").value(customer.getPhone()));
+        Assertions.assertThat(repository.findById(id).orElseThrow().getUpdated()).isNotNull();
+
+    }
+
+    @Test
+    void shouldUpdateCustomerWithNotAllowedFirstName() throws Exception {
+        CustomerFixtures.users(repository);
+        var id = 1L;
+        var customer = getCustomer("-", "+38009723328");
+
+        mapper.findAndRegisterModules();
+        var json = mapper.writeValueAsString(customer);
+
+        var result = mockMvc.perform(patch("/api/customers/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json));
+
+        result.andExpectAll(
+                status().isBadRequest(),
+                jsonPath("$.message").value("Full name should be between 2 and 50 characters," +
+                        " including whitespaces"));
+
+    }
+
+    @Test
+    void shouldUpdateCustomerWithNotAllowedPhone() throws Exception {
+        CustomerFixtures.users(repository);
+        var id = 1L;
+        var customer = getCustomer("Anna Guy", "-");
+
+        mapper.findAndRegisterModules();
+        var json = mapper.writeValueAsString(customer);
+
+        var result = mockMvc.perform(patch("/api/customers/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json));
+
+        result.andExpectAll(
+                status().isBadRequest(),
+                jsonPath("$.message").value("Phone number should be between 6 and 14 digits, " +
+                        "Phone number should start with '+', followed by digits"));
+
+    }
+
+    private CustomerCreationDto getCustomer(String fullName, String email, String phone) {
+        return new CustomerCreationDto(fullName, email,
+                phone);
+    }
+
+    private CustomerUpdateDto getCustomer(String fullName, String phone) {
+        return new CustomerUpdateDto(fullName,
+                phone);
+    }
+}
@@ -0,0 +1,4 @@
+INSERT INTO customer (id, email, full_name, phone, is_active, deleted) VALUES
+                                                         (1,'user1@example.com', 'User One', '+123456789',false, 1),
+                                                         (2,'user2@example.com', 'User Two', '+987654321',true, null),
+                                                         (3,'user3@example.com', 'User Three', '+1122334455',false, EXTRACT(EPOCH FROM NOW()));